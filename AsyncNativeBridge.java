@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+// Async facade over NativeBridge so screens never call into C++ on the Swing EDT.
+// - mutations run on one "campus-writer" thread (they stay in submit order)
+// - reads run on a small "campus-reader" pool; the native gate lets them overlap
+// - a read waits for the last mutation submitted before it, so it always sees it
+// - identical reads that are already queued/running share one native call
+public final class AsyncNativeBridge {
+    private static final int READERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Smaller route batches run as one native call (one crossing beats a fan-out).
+    private static final int BATCH_SPLIT_MIN = 256;
+
+    private final NativeBridge nb;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(daemon("campus-writer"));
+    private final ExecutorService readers = Executors.newFixedThreadPool(READERS, daemon("campus-reader"));
+    private final ConcurrentHashMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null); // guarded by this
+
+    public AsyncNativeBridge(NativeBridge nb) {
+        this.nb = nb;
+    }
+
+    // ---- reads (coalesced) ----
+
+    public CompletableFuture<byte[]> sisListStudentsBin() {
+        return read("sisListStudentsBin", nb::sisListStudentsBin);
+    }
+
+    public CompletableFuture<byte[]> attGetDefaultersBin(int minPercent) {
+        return read("attGetDefaultersBin:" + minPercent, () -> nb.attGetDefaultersBin(minPercent));
+    }
+
+    public CompletableFuture<byte[]> attGetDefaultersBin(int minPercent, int limit) {
+        return read("attGetDefaultersBin:" + minPercent + ":" + limit, () -> nb.attGetDefaultersBin(minPercent, limit));
+    }
+
+    public CompletableFuture<String> sisGetStudent(int roll) {
+        return read("sisGetStudent:" + roll, () -> nb.sisGetStudent(roll));
+    }
+
+    public CompletableFuture<String> sisGetStudentTrace(int roll) {
+        return read("sisGetStudentTrace:" + roll, () -> nb.sisGetStudentTrace(roll));
+    }
+
+    public CompletableFuture<String> attGetSummary(int roll) {
+        return read("attGetSummary:" + roll, () -> nb.attGetSummary(roll));
+    }
+
+    public CompletableFuture<Integer> attCountBelow(int minPercent) {
+        return read("attCountBelow:" + minPercent, () -> nb.attCountBelow(minPercent));
+    }
+
+    public CompletableFuture<String> attLowest(int k) {
+        return read("attLowest:" + k, () -> nb.attLowest(k));
+    }
+
+    public CompletableFuture<String> attPercentileRank(int roll) {
+        return read("attPercentileRank:" + roll, () -> nb.attPercentileRank(roll));
+    }
+
+    public CompletableFuture<byte[]> navShortestPathBin(String src, String dest, String algorithm) {
+        return read("navShortestPathBin:" + src + "\u0000" + dest + "\u0000" + algorithm,
+                () -> nb.navShortestPathBin(src, dest, algorithm));
+    }
+
+    public CompletableFuture<int[]> navShortestPathIds(int src, int dst, int algo) {
+        return read("navShortestPathIds:" + src + ":" + dst + ":" + algo, () -> nb.navShortestPathIds(src, dst, algo));
+    }
+
+    public CompletableFuture<int[][]> navShortestPathTree(int src, int algo) {
+        return read("navShortestPathTree:" + src + ":" + algo, () -> nb.navShortestPathTree(src, algo));
+    }
+
+    public CompletableFuture<int[][]> navReachable(int src, int budget, int algo) {
+        return read("navReachable:" + src + ":" + budget + ":" + algo, () -> nb.navReachable(src, budget, algo));
+    }
+
+    // Large batches are split over the reader pool. A source's queries stay in one chunk, so
+    // each source still gets a single search tree; the result is in query order.
+    public CompletableFuture<int[]> navShortestPathBatch(int[] srcIds, int[] dstIds, int algo) {
+        int n = Math.min(srcIds == null ? 0 : srcIds.length, dstIds == null ? 0 : dstIds.length);
+        int[] src = n == 0 ? new int[0] : Arrays.copyOf(srcIds, n);
+        int[] dst = n == 0 ? new int[0] : Arrays.copyOf(dstIds, n);
+
+        // Sources in first-seen order, each to the least loaded chunk.
+        Map<Integer, Integer> perSource = new LinkedHashMap<>();
+        for (int s : src) perSource.merge(s, 1, Integer::sum);
+        int chunks = Math.min(READERS, perSource.size());
+        if (n < BATCH_SPLIT_MIN || chunks < 2) return read(null, () -> nb.navShortestPathBatch(src, dst, algo));
+        int[] load = new int[chunks];
+        Map<Integer, Integer> chunkOf = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : perSource.entrySet()) {
+            int best = 0;
+            for (int c = 1; c < chunks; c++) if (load[c] < load[best]) best = c;
+            load[best] += e.getValue();
+            chunkOf.put(e.getKey(), best);
+        }
+        int[][] idx = new int[chunks][];
+        for (int c = 0; c < chunks; c++) idx[c] = new int[load[c]];
+        int[] fill = new int[chunks];
+        for (int i = 0; i < n; i++) {
+            int c = chunkOf.get(src[i]);
+            idx[c][fill[c]++] = i;
+        }
+
+        List<CompletableFuture<int[]>> parts = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int[] ids = idx[c];
+            int[] cs = new int[ids.length];
+            int[] cd = new int[ids.length];
+            for (int k = 0; k < ids.length; k++) {
+                cs[k] = src[ids[k]];
+                cd[k] = dst[ids[k]];
+            }
+            parts.add(read(null, () -> nb.navShortestPathBatch(cs, cd, algo)));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            // Records are distance, hops, cost, pathCount, ids: find each one, then concatenate.
+            int[][] rec = new int[n][];
+            int[] recOff = new int[n];
+            int total = 0;
+            for (int c = 0; c < chunks; c++) {
+                int[] data = parts.get(c).join();
+                int p = 0;
+                for (int q : idx[c]) {
+                    rec[q] = data;
+                    recOff[q] = p;
+                    p += 4 + data[p + 3];
+                }
+                total += data.length;
+            }
+            int[] out = new int[total];
+            int o = 0;
+            for (int q = 0; q < n; q++) {
+                int len = 4 + rec[q][recOff[q] + 3];
+                System.arraycopy(rec[q], recOff[q], out, o, len);
+                o += len;
+            }
+            return out;
+        });
+    }
+
+    // ---- mutations (serialized, never coalesced) ----
+
+    // Natively an export takes the write gate (it writes a file and, for the store's own
+    // CSV, compacts), so it is ordered with the other mutations.
+    public CompletableFuture<String> sisExportCsv(String csvPath) {
+        return write(() -> nb.sisExportCsv(csvPath));
+    }
+
+    public CompletableFuture<String> sisUpsertStudent(int roll, String name, String program, int year) {
+        return write(() -> nb.sisUpsertStudent(roll, name, program, year));
+    }
+
+    public CompletableFuture<String> sisDeleteStudent(int roll) {
+        return write(() -> nb.sisDeleteStudent(roll));
+    }
+
+    public CompletableFuture<String> sisImportCsv(String csvPath) {
+        return write(() -> nb.sisImportCsv(csvPath));
+    }
+
+    // Progress arrives on the EDT.
+    public CompletableFuture<String> sisImportCsv(String csvPath, IntConsumer onPercent) {
+        return write(() -> nb.sisImportCsv(csvPath, p -> SwingUtilities.invokeLater(() -> onPercent.accept(p))));
+    }
+
+    public CompletableFuture<String> attNewSessionDay() {
+        return write(nb::attNewSessionDay);
+    }
+
+    public CompletableFuture<String> attMarkPresent(int roll) {
+        return write(() -> nb.attMarkPresent(roll));
+    }
+
+    public CompletableFuture<int[]> attMarkPresentBatch(int[] rolls) {
+        int[] copy = rolls == null ? new int[0] : rolls.clone();
+        return write(() -> nb.attMarkPresentBatch(copy));
+    }
+
+    // Delivers the result (or the error) back on the EDT.
+    public static <T> void onEdt(CompletableFuture<T> f, Consumer<T> ok, Consumer<Throwable> err) {
+        f.whenComplete((v, e) -> SwingUtilities.invokeLater(() -> {
+            if (e == null) ok.accept(v);
+            else if (err != null) err.accept(e);
+        }));
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+        readers.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // key == null: never shared with another read.
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> read(String key, Supplier<T> call) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        CompletableFuture<?> after;
+        synchronized (this) {
+            CompletableFuture<?> existing = key == null ? null : inFlight.putIfAbsent(key, f);
+            if (existing != null) return ((CompletableFuture<T>) existing).copy();
+            after = lastWrite;
+        }
+        // Ordering only: a failed mutation still releases the reads queued behind it.
+        after.handle((v, e) -> null).thenRunAsync(() -> {
+            try {
+                f.complete(call.get());
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            } finally {
+                if (key != null) inFlight.remove(key, f);
+            }
+        }, readers);
+        return f.copy();
+    }
+
+    private synchronized <T> CompletableFuture<T> write(Supplier<T> call) {
+        // Reads queued before this write must not be shared with reads issued after it.
+        inFlight.clear();
+        CompletableFuture<T> f = CompletableFuture.supplyAsync(call, writer);
+        lastWrite = f;
+        return f;
+    }
+}
@@ -5,7 +5,6 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.Insets;
-import java.util.List;
 import java.util.Map;
 
 import javax.swing.BorderFactory;
@@ -98,19 +97,19 @@ public class AttendanceUI extends JPanel {
         JLabel lThr = label("Defaulter Threshold (%)");
         JLabel hint = new JLabel(
                 "<html><b>New Day</b> = adds 1 lecture to everyone (Total++)<br/>"
-                        + "<b>Mark Present</b> = marks this roll present for the current day (Present++)<br/>"
+                        + "<b>Mark Present</b> = marks this roll (or a comma list) present for the current day (Present++)<br/>"
                         + "<b>Get Summary</b> = shows this roll's attendance % (ring)<br/>"
                         + "<b>Show Defaulters</b> = list students below threshold (min-heap priority)</html>");
         hint.setForeground(Theme.MUTED);
         hint.setFont(hint.getFont().deriveFont(Font.PLAIN, 12f));
 
-        roll.setToolTipText("Enter student roll number. Example: 101");
+        roll.setToolTipText("Enter student roll number. Example: 101 (or a list: 101, 102, 103)");
         threshold.setToolTipText("Students below this % are shown as defaulters. Example: 75");
 
-        newDay.addActionListener(e -> {
-            Map<String, String> o = JsonMini.obj(nb.attNewSessionDay());
+        newDay.addActionListener(e -> AsyncNativeBridge.onEdt(nb.async().attNewSessionDay(), json -> {
+            Map<String, String> o = JsonMini.obj(json);
             Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
-        });
+        }, this::backendError));
         present.addActionListener(e -> markPresent());
         summary.addActionListener(e -> showSummary());
         defaulters.addActionListener(e -> showDefaulters());
@@ -205,44 +204,64 @@ public class AttendanceUI extends JPanel {
     }
 
     private void markPresent() {
+        int[] rolls = parseRolls(roll.getText());
+        if (rolls.length > 1) {
+            // Whole class list in one native call.
+            AsyncNativeBridge.onEdt(nb.async().attMarkPresentBatch(rolls), status -> {
+                int marked = 0, unknown = 0;
+                for (int i = 0; i < rolls.length; i++) {
+                    if (status[i] == 1) marked++;
+                    if (status[i] == 0) unknown++;
+                }
+                boolean saved = status[rolls.length] == 1;
+                Toast.show(layers, "Marked " + marked + " of " + rolls.length + " present"
+                        + (unknown > 0 ? " • " + unknown + " unknown" : "")
+                        + (saved ? "." : ", but failed to save them to the attendance journal."),
+                        unknown > 0 || !saved ? Theme.DANGER : Theme.OK);
+            }, this::backendError);
+            return;
+        }
         int r = parseInt(roll.getText(), -1);
         if (r <= 0) { Toast.show(layers, "Enter a valid roll.", Theme.DANGER); return; }
-        Map<String, String> o = JsonMini.obj(nb.attMarkPresent(r));
-        Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
-        showSummary();
+        AsyncNativeBridge.onEdt(nb.async().attMarkPresent(r), json -> {
+            Map<String, String> o = JsonMini.obj(json);
+            Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
+            showSummary();
+        }, this::backendError);
     }
 
     private void showSummary() {
         int r = parseInt(roll.getText(), -1);
         if (r <= 0) { Toast.show(layers, "Enter a roll to view summary.", Theme.DANGER); return; }
-        String json = nb.attGetSummary(r);
-        if (json == null || json.trim().isEmpty()) {
-            Toast.show(layers, "Roll not found.", Theme.DANGER);
-            ring.setPercent(0);
-            return;
-        }
-        Map<String, String> o = JsonMini.obj(json);
-        int pct = JsonMini.asInt(o.get("percent"), 0);
-        ring.setPercent(pct);
-        Toast.show(layers, JsonMini.asString(o.get("name")) + " • " + pct + "%", Theme.OK);
+        AsyncNativeBridge.onEdt(nb.async().attGetSummary(r), json -> {
+            if (json == null || json.trim().isEmpty()) {
+                Toast.show(layers, "Roll not found.", Theme.DANGER);
+                ring.setPercent(0);
+                return;
+            }
+            Map<String, String> o = JsonMini.obj(json);
+            int pct = JsonMini.asInt(o.get("percent"), 0);
+            ring.setPercent(pct);
+            Toast.show(layers, JsonMini.asString(o.get("name")) + " • " + pct + "%", Theme.OK);
+        }, this::backendError);
     }
 
     private void showDefaulters() {
         int min = parseInt(threshold.getText(), 75);
-        min = Math.max(0, Math.min(100, min));
-
-        model.setRowCount(0);
-        List<Map<String, String>> arr = JsonMini.arrObjects(nb.attGetDefaulters(min));
-        for (Map<String, String> o : arr) {
-            model.addRow(new Object[] {
-                    JsonMini.asInt(o.get("roll"), 0),
-                    JsonMini.asString(o.get("name")),
-                    JsonMini.asInt(o.get("present"), 0),
-                    JsonMini.asInt(o.get("total"), 0),
-                    JsonMini.asInt(o.get("percent"), 0)
-            });
-        }
-        Toast.show(layers, "Loaded " + arr.size() + " defaulters below " + min + "%.", Theme.OK);
+        int clamped = Math.max(0, Math.min(100, min));
+
+        // Native call + decode on the backend thread, table update on the EDT.
+        AsyncNativeBridge.onEdt(nb.async().attGetDefaultersBin(clamped).thenApply(BinMini::defaulters), arr -> {
+            model.setRowCount(0);
+            for (HeapView.Item it : arr) {
+                model.addRow(new Object[] { it.roll, it.name, it.present, it.total, it.percent });
+            }
+            Toast.show(layers, "Loaded " + arr.size() + " defaulters below " + clamped + "%.", Theme.OK);
+        }, this::backendError);
+    }
+
+    private void backendError(Throwable t) {
+        Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER);
     }
 
     private static JTextField field(String placeholder) {
@@ -257,6 +276,16 @@ public class AttendanceUI extends JPanel {
         return f;
     }
 
+    // "101, 102 103" -> {101, 102, 103}; invalid tokens become -1 (reported as unknown).
+    private static int[] parseRolls(String s) {
+        String t = s == null ? "" : s.trim();
+        if (t.isEmpty()) return new int[0];
+        String[] parts = t.split("[,\\s]+");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = parseInt(parts[i], -1);
+        return out;
+    }
+
     private static int parseInt(String s, int def) {
         try {
             return Integer.parseInt(s.trim());
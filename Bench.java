@@ -0,0 +1,139 @@
+import java.util.List;
+import java.util.Map;
+
+// Headless micro-benchmarks (plain warmup + timed rounds; the project has no JMH/build tool).
+// Usage (from repo root): java -cp SCNS-Java/src Bench [json|routes|graph|queue|ch|load]
+public final class Bench {
+    private static long sink;
+
+    private Bench() {}
+
+    public static void main(String[] args) {
+        String which = args.length > 0 ? args[0] : "all";
+        if (which.equals("json") || which.equals("all")) json(100_000);
+        if (which.equals("routes") || which.equals("all")) routes();
+        if (which.equals("graph") || which.equals("all")) graph();
+        if (which.equals("queue") || which.equals("all")) queue();
+        if (which.equals("ch") || which.equals("all")) hierarchy();
+        if (which.equals("load") || which.equals("all")) load();
+        System.out.println("(sink " + sink + ")");
+    }
+
+    // JsonMini vs JsonCursor on a sisListStudents-shaped payload.
+    static void json(int students) {
+        String payload = studentsPayload(students);
+        System.out.println("json: " + students + " students, " + (payload.length() / 1024) + " KiB");
+
+        time("JsonMini.arrObjects", 3, 10, () -> {
+            List<Map<String, String>> arr = JsonMini.arrObjects(payload);
+            long sum = 0;
+            for (Map<String, String> o : arr) {
+                sum += JsonMini.asInt(o.get("roll"), 0) + JsonMini.asString(o.get("name")).length();
+            }
+            sink += sum;
+        });
+
+        time("JsonCursor.forEachObject", 3, 10, () -> {
+            long[] sum = new long[1];
+            JsonCursor.of(payload).forEachObject(o -> sum[0] += o.getInt("roll", 0) + o.getString("name").length());
+            sink += sum[0];
+        });
+    }
+
+    // Compare-style traffic: both algorithms for the same pair, over and over (route LRU).
+    static void routes() {
+        NativeBridge nb = new NativeBridge();
+        String[] locs = nb.navLocations();
+        System.out.println("routes: " + locs.length + " locations");
+        time("compare, same pair", 100, 2000, () -> {
+            sink += nb.navShortestPathBin("Gate", "Library", "BFS").length;
+            sink += nb.navShortestPathBin("Gate", "Library", "Dijkstra").length;
+        });
+        time("all pairs, both algorithms", 3, 20, () -> {
+            for (String a : locs) {
+                for (String b : locs) {
+                    if (a.equals(b)) continue;
+                    sink += nb.navShortestPathBin(a, b, "BFS").length;
+                    sink += nb.navShortestPathBin(a, b, "Dijkstra").length;
+                }
+            }
+        });
+        int[] srcIds = new int[locs.length * locs.length];
+        int[] dstIds = new int[srcIds.length];
+        for (int i = 0; i < srcIds.length; i++) {
+            srcIds[i] = i / locs.length;
+            dstIds[i] = i % locs.length;
+        }
+        time("all pairs by id, per call", 3, 20, () -> {
+            for (int i = 0; i < srcIds.length; i++) sink += nb.navShortestPathIds(srcIds[i], dstIds[i], NativeBridge.ROUTE_DIJKSTRA).length;
+        });
+        time("all pairs by id, batched", 3, 20, () -> sink += nb.navShortestPathBatch(srcIds, dstIds, NativeBridge.ROUTE_DIJKSTRA).length);
+        System.out.println("  cache " + nb.navCacheStats());
+        System.out.println("  graphs " + nb.navGraphStats());
+    }
+
+    // Linked-list vs CSR adjacency (timed natively, see NativeBench.navBenchmarkCsr).
+    static void graph() {
+        for (int edges : new int[] { 10_000, 100_000, 1_000_000 }) {
+            System.out.println("graph: " + NativeBench.navBenchmarkCsr(edges / 8, edges, 8));
+        }
+    }
+
+    // Binary heap vs Dial buckets behind Dijkstra (timed natively, see NativeBench.navBenchmarkQueue).
+    static void queue() {
+        for (int maxWeight : new int[] { 4, 50, 1000 }) {
+            System.out.println("queue: " + NativeBench.navBenchmarkQueue(100_000, 400_000, 8, maxWeight));
+        }
+    }
+
+    // Plain Dijkstra vs contraction-hierarchy routes, incl. a save + reload of the hierarchy.
+    static void hierarchy() {
+        java.io.File file = new java.io.File(System.getProperty("java.io.tmpdir"), "bench-campus.ch");
+        for (int side : new int[] { 50, 100, 200 }) {
+            file.delete();
+            System.out.println("ch: " + NativeBench.navBenchmarkHierarchy(side, 200, file.getAbsolutePath()));
+        }
+        file.delete();
+    }
+
+    // Student store startup: CSV import vs the binary snapshot written by that import.
+    static void load() {
+        String base = new java.io.File(System.getProperty("java.io.tmpdir"), "bench-students.csv").getAbsolutePath();
+        for (int records : new int[] { 10_000, 100_000, 1_000_000 }) {
+            System.out.println("load: " + NativeBench.sisBenchmarkLoad(records, base));
+        }
+        for (String suffix : new String[] { "", ".snap", ".snap.bak", ".journal" }) {
+            new java.io.File(base + suffix).delete();
+        }
+    }
+
+    static String studentsPayload(int n) {
+        StringBuilder sb = new StringBuilder(n * 90);
+        sb.append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"roll\":").append(1000 + i)
+                    .append(",\"name\":\"Student ").append(i).append('"')
+                    .append(",\"program\":\"").append(i % 2 == 0 ? "BSCS" : "BSSE").append('"')
+                    .append(",\"year\":").append(1 + i % 8)
+                    .append(",\"present\":").append(i % 30)
+                    .append(",\"total\":30}");
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    static void time(String label, int warmup, int rounds, Runnable r) {
+        for (int i = 0; i < warmup; i++) r.run();
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            long dt = System.nanoTime() - t0;
+            best = Math.min(best, dt);
+            total += dt;
+        }
+        System.out.printf("  %-28s best %8.2f ms   avg %8.2f ms%n", label, best / 1e6, total / 1e6 / rounds);
+    }
+}
@@ -0,0 +1,133 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decoder for the compact binary results produced by utils_bin.cpp.
+// Layout: int fixedBytes, fixed area (little-endian ints; strings as offset+length), string table.
+// Records are decoded straight into UI models (no intermediate maps or substrings).
+public final class BinMini {
+    private BinMini() {}
+
+    public static final class Route {
+        public boolean ok;
+        public String algorithm = "";
+        public int distance = -1;
+        public int hops = -1;
+        public int cost = -1;
+        public final List<String> path = new ArrayList<>();
+        public final List<String> visited = new ArrayList<>();
+        public final List<Integer> edgeWeights = new ArrayList<>();
+        public int settled; // nodes the search expanded
+    }
+
+    // count, then per student: roll, semester, present, total, name, program
+    public static List<FolderCabinetView.Record> students(byte[] data) {
+        Reader in = new Reader(data);
+        int n = in.count();
+        List<FolderCabinetView.Record> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FolderCabinetView.Record r = new FolderCabinetView.Record();
+            r.roll = in.i32();
+            r.semester = in.i32();
+            r.present = in.i32();
+            r.total = in.i32();
+            r.name = in.str();
+            r.program = in.str();
+            out.add(r);
+        }
+        return out;
+    }
+
+    // count, then per defaulter: roll, present, total, percent, name
+    public static List<HeapView.Item> defaulters(byte[] data) {
+        Reader in = new Reader(data);
+        int n = in.count();
+        List<HeapView.Item> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            HeapView.Item it = new HeapView.Item();
+            it.roll = in.i32();
+            it.present = in.i32();
+            it.total = in.i32();
+            it.percent = in.i32();
+            it.name = in.str();
+            out.add(it);
+        }
+        return out;
+    }
+
+    // ok, distance, hops, cost, algorithm, path[], visited[], edgeWeights[]
+    public static Route route(byte[] data) {
+        Route r = new Route();
+        Reader in = new Reader(data);
+        if (!in.has(16)) return r;
+        r.ok = in.i32() != 0;
+        r.distance = in.i32();
+        r.hops = in.i32();
+        r.cost = in.i32();
+        r.algorithm = in.str();
+        int n = in.count();
+        for (int i = 0; i < n; i++) r.path.add(in.str());
+        n = in.count();
+        for (int i = 0; i < n; i++) r.visited.add(in.str());
+        n = in.count();
+        for (int i = 0; i < n; i++) r.edgeWeights.add(in.i32());
+        r.settled = in.i32();
+        return r;
+    }
+
+    // navShortestPathIds: ok, distance, hops, cost, settled, pathCount, path ids,
+    // weight per edge, visitedCount, visited ids. Names come from the cached navLocations()
+    // table (id = index).
+    public static Route route(int[] data, String[] names) {
+        Route r = new Route();
+        if (data == null || data.length < 6) return r;
+        int p = 0;
+        r.ok = data[p++] != 0;
+        r.distance = data[p++];
+        r.hops = data[p++];
+        r.cost = data[p++];
+        r.settled = data[p++];
+        int n = Math.max(0, Math.min(data[p++], data.length - p));
+        for (int i = 0; i < n; i++) r.path.add(nameOf(names, data[p++]));
+        for (int i = 0; i + 1 < n && p < data.length; i++) r.edgeWeights.add(data[p++]);
+        n = p < data.length ? Math.max(0, Math.min(data[p++], data.length - p)) : 0;
+        for (int i = 0; i < n; i++) r.visited.add(nameOf(names, data[p++]));
+        return r;
+    }
+
+    private static String nameOf(String[] names, int id) {
+        return names != null && id >= 0 && id < names.length ? names[id] : "#" + id;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final ByteBuffer fixed;
+        private final int strBase;
+
+        Reader(byte[] data) {
+            this.data = data == null ? new byte[0] : data;
+            ByteBuffer bb = ByteBuffer.wrap(this.data).order(ByteOrder.LITTLE_ENDIAN);
+            int fixedBytes = this.data.length >= 4 ? bb.getInt(0) : 0;
+            fixedBytes = Math.max(0, Math.min(fixedBytes, this.data.length - 4));
+            this.fixed = ByteBuffer.wrap(this.data, 4, fixedBytes).slice().order(ByteOrder.LITTLE_ENDIAN);
+            this.strBase = 4 + fixedBytes;
+        }
+
+        boolean has(int bytes) { return fixed.remaining() >= bytes; }
+
+        int i32() { return has(4) ? fixed.getInt() : 0; }
+
+        // element count, clamped so a truncated buffer can't trigger huge allocations
+        int count() { return Math.max(0, Math.min(i32(), fixed.remaining() / 4)); }
+
+        String str() {
+            int off = i32();
+            int len = i32();
+            int start = strBase + off;
+            if (off < 0 || len <= 0 || start + len > data.length) return "";
+            return new String(data, start, len, StandardCharsets.UTF_8);
+        }
+    }
+}
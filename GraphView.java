@@ -45,6 +45,12 @@ public class GraphView extends JComponent {
     private float loserAlpha = 1f; // fades losing trail
     private String winner = "Dijkstra";
 
+    // Heatmap mode: a whole shortest-path tree, indexed like nodes[]
+    private boolean heatMode = false;
+    private int[] heatDist = new int[0];
+    private int[] heatPrev = new int[0];
+    private int heatBudget = 0; // > 0: reachable-within overlay, colors scaled to the budget
+
     // Parkour-ish impact effects on nodes
     private final Map<String, Float> impact = new HashMap<>();
 
@@ -69,6 +75,7 @@ public class GraphView extends JComponent {
 
     public void animateTraversal(List<String> path, List<String> visited, List<Integer> edgeWeights, String mode) {
         raceMode = false;
+        heatMode = false;
         setMode(mode);
         impact.clear();
         this.path.clear();
@@ -91,6 +98,7 @@ public class GraphView extends JComponent {
 
     public void animateCompare(List<String> primaryPath, List<String> secondaryPath, List<String> visited) {
         raceMode = false;
+        heatMode = false;
         this.path.clear();
         if (primaryPath != null) this.path.addAll(primaryPath);
         this.path2.clear();
@@ -114,6 +122,7 @@ public class GraphView extends JComponent {
             List<Integer> dijEdgeWeights,
             String winner) {
         raceMode = true;
+        heatMode = false;
         this.winner = (winner == null || winner.isEmpty()) ? "Dijkstra" : winner;
         this.loserAlpha = 1f;
         this.impact.clear();
@@ -150,6 +159,41 @@ public class GraphView extends JComponent {
         routeTimer.start();
     }
 
+    // Travel-time heatmap from navShortestPathTree: nodes colored by dist (near = green,
+    // far = red, unreachable = grey), tree edges drawn from prev.
+    public void showHeatmap(int[] dist, int[] prev, String mode) {
+        raceMode = false;
+        heatMode = true;
+        setMode(mode);
+        if (routeTimer != null) routeTimer.stop();
+        impact.clear();
+        path.clear();
+        path2.clear();
+        visited.clear();
+        edgeWeights.clear();
+        heatDist = dist == null ? new int[0] : dist.clone();
+        heatPrev = prev == null ? new int[0] : prev.clone();
+        heatBudget = 0;
+        repaint();
+    }
+
+    // Isochrone overlay from navReachable: only the locations within `budget` light up
+    // (colored by how much of the budget they use); the rest stay grey.
+    public void showReachable(int[] ids, int[] dist, int[] prev, int budget, String mode) {
+        int[] d = new int[nodes.length];
+        int[] p = new int[nodes.length];
+        java.util.Arrays.fill(d, -1);
+        java.util.Arrays.fill(p, -1);
+        int n = ids == null ? 0 : Math.min(ids.length, Math.min(dist.length, prev.length));
+        for (int i = 0; i < n; i++) {
+            if (ids[i] < 0 || ids[i] >= nodes.length) continue;
+            d[ids[i]] = dist[i];
+            p[ids[i]] = prev[i];
+        }
+        showHeatmap(d, p, mode);
+        heatBudget = Math.max(1, budget);
+    }
+
     private void tick() {
         long now = System.currentTimeMillis();
         long dt = Math.max(1, now - lastTick);
@@ -246,26 +290,18 @@ public class GraphView extends JComponent {
             g2.dispose();
             return;
         }
+        if (heatMode) {
+            paintHeatmap(g2, pos);
+            g2.dispose();
+            return;
+        }
 
         Color bfsC = new Color(60, 220, 255);
         Color dijC = new Color(180, 110, 255);
         Color visitC = "Dijkstra".equalsIgnoreCase(mode) ? dijC : bfsC;
 
-        // Base map edges (main roads + key shortcuts). We don't draw every \"shortcut\" edge to avoid clutter.
-        drawCampusEdge(g2, pos, "Gate", "Ground", 3);
-        drawCampusEdge(g2, pos, "Ground", "Cafeteria", 3);
-        drawCampusEdge(g2, pos, "Cafeteria", "Library", 3);
-        drawCampusEdge(g2, pos, "Gate", "Admin", 12);
-        drawCampusEdge(g2, pos, "Admin", "Library", 12);
-        drawCampusEdge(g2, pos, "Ground", "Admin", 2);
-        drawCampusEdge(g2, pos, "Admin", "Block-A", 2);
-        drawCampusEdge(g2, pos, "Admin", "Block-B", 2);
-        drawCampusEdge(g2, pos, "Block-A", "Lab", 2);
-        drawCampusEdge(g2, pos, "Block-B", "Lab", 2);
-        drawCampusEdge(g2, pos, "Lab", "Gym", 2);
-        drawCampusEdge(g2, pos, "Gym", "Dorms", 2);
-        drawCampusEdge(g2, pos, "Dorms", "Hostel", 2);
-        drawCampusEdge(g2, pos, "Ground", "Hostel", 3);
+        // Base map edges
+        drawCampusEdges(g2, pos);
 
         // Visited glow
         int visCount = Math.min(visited.size(), visIndex);
@@ -369,21 +405,8 @@ public class GraphView extends JComponent {
         Color bfsC = new Color(60, 220, 255);
         Color dijC = new Color(180, 110, 255);
 
-        // Base map edges (weight-based styling)
-        drawCampusEdge(g2, pos, "Gate", "Admin", 12);
-        drawCampusEdge(g2, pos, "Admin", "Library", 12);
-        drawCampusEdge(g2, pos, "Gate", "Ground", 3);
-        drawCampusEdge(g2, pos, "Ground", "Cafeteria", 3);
-        drawCampusEdge(g2, pos, "Cafeteria", "Library", 3);
-        drawCampusEdge(g2, pos, "Ground", "Admin", 2);
-        drawCampusEdge(g2, pos, "Admin", "Block-A", 2);
-        drawCampusEdge(g2, pos, "Admin", "Block-B", 2);
-        drawCampusEdge(g2, pos, "Block-A", "Lab", 2);
-        drawCampusEdge(g2, pos, "Block-B", "Lab", 2);
-        drawCampusEdge(g2, pos, "Lab", "Gym", 2);
-        drawCampusEdge(g2, pos, "Gym", "Dorms", 2);
-        drawCampusEdge(g2, pos, "Dorms", "Hostel", 2);
-        drawCampusEdge(g2, pos, "Ground", "Hostel", 3);
+        // Base map edges
+        drawCampusEdges(g2, pos);
 
         boolean bfsWins = "BFS".equalsIgnoreCase(winner);
         float bfsA = bfsWins ? 1f : loserAlpha;
@@ -422,6 +445,66 @@ public class GraphView extends JComponent {
         }
     }
 
+    private void paintHeatmap(Graphics2D g2, Map<String, double[]> pos) {
+        drawCampusEdges(g2, pos);
+
+        int n = Math.min(nodes.length, Math.min(heatDist.length, heatPrev.length));
+        int max = 1;
+        for (int i = 0; i < n; i++) max = Math.max(max, heatDist[i]);
+        if (heatBudget > 0) {
+            max = heatBudget;
+            int inside = 0;
+            for (int i = 0; i < n; i++) if (heatDist[i] >= 0) inside++;
+            g2.setFont(getFont().deriveFont(Font.BOLD, 12f));
+            g2.setColor(Theme.MUTED);
+            g2.drawString("Within " + heatBudget + ("BFS".equalsIgnoreCase(mode) ? " hops" : " cost") + ": " + inside + " of " + nodes.length,
+                    14, getHeight() - 14);
+        }
+
+        // tree edges, colored like the node they lead to
+        g2.setStroke(new BasicStroke(2.6f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        for (int i = 0; i < n; i++) {
+            int p = heatPrev[i];
+            if (p < 0 || p >= n) continue;
+            double[] a = pos.get(nodes[p]);
+            double[] b = pos.get(nodes[i]);
+            if (a == null || b == null) continue;
+            Color c = heatColor(heatDist[i], max);
+            g2.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 170));
+            g2.draw(new Line2D.Double(a[0], a[1], b[0], b[1]));
+        }
+
+        Font f = getFont().deriveFont(Font.BOLD, 12f);
+        g2.setFont(f);
+        for (int i = 0; i < nodes.length; i++) {
+            double[] p = pos.get(nodes[i]);
+            if (p == null) continue;
+            int d = i < n ? heatDist[i] : -1;
+            Color c = heatColor(d, max);
+            double rr = 15 + 3 * (0.5 + 0.5 * Math.sin(pulse + i));
+            g2.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 70));
+            g2.fill(new Ellipse2D.Double(p[0] - rr, p[1] - rr, rr * 2, rr * 2));
+            g2.setColor(new Color(12, 14, 24));
+            g2.fill(new Ellipse2D.Double(p[0] - 12, p[1] - 12, 24, 24));
+            g2.setStroke(new BasicStroke(d == 0 ? 3.2f : 2.2f));
+            g2.setColor(d == 0 ? Theme.ACCENT : c);
+            g2.draw(new Ellipse2D.Double(p[0] - 12, p[1] - 12, 24, 24));
+            g2.setColor(Theme.TEXT);
+            g2.drawString(nodes[i], (int) p[0] - 14, (int) p[1] - 16);
+            g2.setColor(Theme.MUTED);
+            g2.drawString(d < 0 ? "-" : String.valueOf(d), (int) p[0] - 4, (int) p[1] + 28);
+        }
+    }
+
+    // green (0) -> amber -> red (max); grey = unreachable
+    private static Color heatColor(int d, int max) {
+        if (d < 0) return new Color(90, 105, 140);
+        float t = Math.max(0f, Math.min(1f, (float) d / (float) max));
+        int r = t < 0.5f ? (int) (80 + 350 * t) : 255;
+        int g = t < 0.5f ? 220 : (int) (220 - 260 * (t - 0.5f));
+        return new Color(Math.min(255, r), Math.max(0, g), t < 0.5f ? 140 - (int) (160 * t) : 60);
+    }
+
     private static void drawVisitedTrail(Graphics2D g2, Map<String, double[]> pos, List<String> v, int count, Color c, float alphaMul) {
         int visCount = Math.min(v.size(), count);
         for (int i = 0; i < visCount; i++) {
@@ -505,6 +588,25 @@ public class GraphView extends JComponent {
         return pos;
     }
 
+    // Base map edges shared by every paint mode: main roads + key shortcuts, not every
+    // "shortcut" edge (clutter). Long roads first, so the brighter short ones draw on top.
+    private static void drawCampusEdges(Graphics2D g2, Map<String, double[]> pos) {
+        drawCampusEdge(g2, pos, "Gate", "Admin", 12);
+        drawCampusEdge(g2, pos, "Admin", "Library", 12);
+        drawCampusEdge(g2, pos, "Gate", "Ground", 3);
+        drawCampusEdge(g2, pos, "Ground", "Cafeteria", 3);
+        drawCampusEdge(g2, pos, "Cafeteria", "Library", 3);
+        drawCampusEdge(g2, pos, "Ground", "Admin", 2);
+        drawCampusEdge(g2, pos, "Admin", "Block-A", 2);
+        drawCampusEdge(g2, pos, "Admin", "Block-B", 2);
+        drawCampusEdge(g2, pos, "Block-A", "Lab", 2);
+        drawCampusEdge(g2, pos, "Block-B", "Lab", 2);
+        drawCampusEdge(g2, pos, "Lab", "Gym", 2);
+        drawCampusEdge(g2, pos, "Gym", "Dorms", 2);
+        drawCampusEdge(g2, pos, "Dorms", "Hostel", 2);
+        drawCampusEdge(g2, pos, "Ground", "Hostel", 3);
+    }
+
     private static void drawCampusEdge(Graphics2D g2, Map<String, double[]> pos, String a, String b, int w) {
         double[] pa = pos.get(a);
         double[] pb = pos.get(b);
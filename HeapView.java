@@ -15,6 +15,8 @@ public class HeapView extends JComponent {
     public static final class Item {
         public int roll;
         public String name;
+        public int present;
+        public int total;
         public int percent;
     }
 
@@ -0,0 +1,206 @@
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Re-entrant, lazy JSON reader for the shapes produced by our C++ backend.
+// A cursor is an immutable view [start, end) over the original string: nothing is
+// parsed until a field is asked for, nested values are sub-views (no substring copies),
+// and there is no static state, so any number of threads can parse at once.
+public final class JsonCursor {
+    private final String s;
+    private final int start; // first char of the value
+    private final int end;   // one past the last char
+
+    private JsonCursor(String s, int start, int end) {
+        this.s = s;
+        this.start = start;
+        this.end = end;
+    }
+
+    public static JsonCursor of(String json) {
+        String src = json == null ? "" : json;
+        int a = skipWs(src, 0, src.length());
+        int b = src.length();
+        while (b > a && isWs(src.charAt(b - 1))) b--;
+        return new JsonCursor(src, a, b);
+    }
+
+    public boolean isObject() { return start < end && s.charAt(start) == '{'; }
+    public boolean isArray() { return start < end && s.charAt(start) == '['; }
+    public boolean isEmpty() { return start >= end; }
+
+    // ---- object accessors ----
+
+    // Sub-view for a field (object, array or scalar), or an empty cursor if missing.
+    public JsonCursor get(String key) {
+        int v = find(key);
+        if (v < 0) return new JsonCursor(s, end, end);
+        return new JsonCursor(s, v, skipValue(v));
+    }
+
+    public int getInt(String key, int def) {
+        int v = find(key);
+        return v < 0 ? def : parseInt(v, skipValue(v), def);
+    }
+
+    public boolean getBool(String key) {
+        int v = find(key);
+        return v >= 0 && s.startsWith("true", v);
+    }
+
+    public String getString(String key) {
+        int v = find(key);
+        return v < 0 ? "" : readString(v);
+    }
+
+    // ---- array iteration ----
+
+    public void forEachObject(Consumer<JsonCursor> fn) {
+        forEachElement(v -> {
+            if (s.charAt(v) == '{') fn.accept(new JsonCursor(s, v, skipValue(v)));
+        });
+    }
+
+    public void forEachString(Consumer<String> fn) {
+        forEachElement(v -> fn.accept(readString(v)));
+    }
+
+    public void forEachInt(IntConsumer fn) {
+        forEachElement(v -> fn.accept(parseInt(v, skipValue(v), 0)));
+    }
+
+    // ---- scanning (all positions are locals; nothing is shared) ----
+
+    private void forEachElement(IntConsumer atValue) {
+        if (!isArray()) return;
+        int i = start + 1;
+        while (true) {
+            i = skipWs(s, i, end);
+            if (i >= end || s.charAt(i) == ']') return;
+            if (s.charAt(i) == ',') { i++; continue; }
+            int next = skipValue(i);
+            if (next == i) return; // a stray '}' or ':' is not a value: malformed, stop
+            atValue.accept(i);
+            i = next;
+        }
+    }
+
+    // Returns the index of the value for key in this object, or -1.
+    private int find(String key) {
+        if (!isObject()) return -1;
+        int i = start + 1;
+        while (true) {
+            i = skipWs(s, i, end);
+            if (i >= end || s.charAt(i) == '}') return -1;
+            if (s.charAt(i) == ',') { i++; continue; }
+            if (s.charAt(i) != '"') return -1;
+            int keyEnd = skipString(i);
+            boolean match = keyEnd - i - 2 == key.length() && s.regionMatches(i + 1, key, 0, key.length());
+            i = skipWs(s, keyEnd, end);
+            if (i < end && s.charAt(i) == ':') i++;
+            i = skipWs(s, i, end);
+            if (match) return i;
+            int next = skipValue(i);
+            if (next == i && (i >= end || s.charAt(i) != ',')) return -1; // malformed: no progress
+            i = next;
+        }
+    }
+
+    private int skipValue(int i) {
+        if (i >= end) return end;
+        char c = s.charAt(i);
+        if (c == '"') return skipString(i);
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (int j = i; j < end; j++) {
+                char cc = s.charAt(j);
+                if (cc == '"') { j = skipString(j) - 1; continue; }
+                if (cc == '{' || cc == '[') depth++;
+                if (cc == '}' || cc == ']') {
+                    depth--;
+                    if (depth == 0) return j + 1;
+                }
+            }
+            return end;
+        }
+        int j = i;
+        while (j < end) {
+            char cc = s.charAt(j);
+            if (cc == ',' || cc == '}' || cc == ']') break;
+            j++;
+        }
+        return j;
+    }
+
+    // i points at the opening quote; returns one past the closing quote.
+    private int skipString(int i) {
+        for (int j = i + 1; j < end; j++) {
+            char c = s.charAt(j);
+            if (c == '\\') { j++; continue; }
+            if (c == '"') return j + 1;
+        }
+        return end;
+    }
+
+    private String readString(int i) {
+        if (i >= end || s.charAt(i) != '"') return "";
+        int close = skipString(i) - 1;
+        // fast path: no escapes -> single substring of the original
+        boolean escaped = false;
+        for (int j = i + 1; j < close && !escaped; j++) escaped = s.charAt(j) == '\\';
+        if (!escaped) return s.substring(i + 1, Math.max(i + 1, close));
+        StringBuilder sb = new StringBuilder(close - i);
+        for (int j = i + 1; j < close; j++) {
+            char c = s.charAt(j);
+            if (c == '\\' && j + 1 < close) {
+                char n = s.charAt(++j);
+                switch (n) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (j + 4 < close) {
+                            sb.append((char) Integer.parseInt(s.substring(j + 1, j + 5), 16));
+                            j += 4;
+                        }
+                        break;
+                    default: sb.append(n);
+                }
+                continue;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private int parseInt(int a, int b, int def) {
+        a = skipWs(s, a, b);
+        if (a < b && s.charAt(a) == '"') { a++; b--; } // tolerate quoted numbers like JsonMini
+        boolean neg = a < b && s.charAt(a) == '-';
+        if (neg) a++;
+        long v = 0;
+        int digits = 0;
+        for (int i = a; i < b; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                if (isWs(c)) break;
+                return def;
+            }
+            v = v * 10 + (c - '0');
+            if (v > Integer.MAX_VALUE) return def;
+            digits++;
+        }
+        if (digits == 0) return def;
+        return (int) (neg ? -v : v);
+    }
+
+    private static int skipWs(String s, int i, int end) {
+        while (i < end && isWs(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isWs(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -5,10 +5,13 @@ import java.util.Map;
 
 // Tiny JSON parser for the limited shapes produced by our C++ backend.
 // Supports: objects with string/number/bool/array fields, array of objects, array of strings.
+// Thread-safe: the scan position lives in a per-call holder (no static scanner state).
+// For large payloads prefer JsonCursor (lazy, no substring copies).
 public final class JsonMini {
     private JsonMini() {}
 
     public static Map<String, String> obj(String json) {
+        int[] next = new int[1];
         json = json == null ? "" : json.trim();
         Map<String, String> out = new HashMap<>();
         if (!json.startsWith("{") || !json.endsWith("}")) return out;
@@ -17,13 +20,13 @@ public final class JsonMini {
             i = skipWs(json, i);
             if (i >= json.length() - 1) break;
             if (json.charAt(i) == ',') { i++; continue; }
-            String key = readString(json, i);
-            i = nextIndex;
+            String key = readString(json, i, next);
+            i = next[0];
             i = skipWs(json, i);
             if (i < json.length() && json.charAt(i) == ':') i++;
             i = skipWs(json, i);
-            String val = readValue(json, i);
-            i = nextIndex;
+            String val = readValue(json, i, next);
+            i = next[0];
             out.put(key, val);
             i = skipWs(json, i);
             if (i < json.length() && json.charAt(i) == ',') i++;
@@ -32,6 +35,7 @@ public final class JsonMini {
     }
 
     public static List<String> arrStrings(String json) {
+        int[] next = new int[1];
         List<String> out = new ArrayList<>();
         json = json == null ? "" : json.trim();
         if (!json.startsWith("[") || !json.endsWith("]")) return out;
@@ -40,8 +44,8 @@ public final class JsonMini {
             i = skipWs(json, i);
             if (i >= json.length() - 1) break;
             if (json.charAt(i) == ',') { i++; continue; }
-            String s = readString(json, i);
-            i = nextIndex;
+            String s = readString(json, i, next);
+            i = next[0];
             out.add(s);
             i = skipWs(json, i);
             if (i < json.length() && json.charAt(i) == ',') i++;
@@ -50,6 +54,7 @@ public final class JsonMini {
     }
 
     public static List<Map<String, String>> arrObjects(String json) {
+        int[] next = new int[1];
         List<Map<String, String>> out = new ArrayList<>();
         json = json == null ? "" : json.trim();
         if (!json.startsWith("[") || !json.endsWith("]")) return out;
@@ -58,8 +63,8 @@ public final class JsonMini {
             i = skipWs(json, i);
             if (i >= json.length() - 1) break;
             if (json.charAt(i) == ',') { i++; continue; }
-            String v = readValue(json, i);
-            i = nextIndex;
+            String v = readValue(json, i, next);
+            i = next[0];
             Map<String, String> o = obj(v);
             if (!o.isEmpty()) out.add(o);
             i = skipWs(json, i);
@@ -70,6 +75,7 @@ public final class JsonMini {
 
     // Parses: [1,2,3,...] into List<Integer>
     public static List<Integer> arrInts(String json) {
+        int[] next = new int[1];
         List<Integer> out = new ArrayList<>();
         json = json == null ? "" : json.trim();
         if (!json.startsWith("[") || !json.endsWith("]")) return out;
@@ -78,8 +84,8 @@ public final class JsonMini {
             i = skipWs(json, i);
             if (i >= json.length() - 1) break;
             if (json.charAt(i) == ',') { i++; continue; }
-            String v = readValue(json, i);
-            i = nextIndex;
+            String v = readValue(json, i, next);
+            i = next[0];
             try {
                 out.add(Integer.parseInt(stripQuotes(v)));
             } catch (Exception ignored) {
@@ -149,9 +155,7 @@ public final class JsonMini {
         return s.replace("\\\"", "\"");
     }
 
-    // --- internal scanner ---
-
-    private static int nextIndex = 0;
+    // --- internal scanner (next[0] receives the index after the token) ---
 
     private static int skipWs(String s, int i) {
         while (i < s.length()) {
@@ -162,10 +166,10 @@ public final class JsonMini {
         return i;
     }
 
-    private static String readString(String s, int i) {
+    private static String readString(String s, int i, int[] next) {
         i = skipWs(s, i);
         if (i >= s.length() || s.charAt(i) != '"') {
-            nextIndex = i;
+            next[0] = i;
             return "";
         }
         i++;
@@ -186,27 +190,26 @@ public final class JsonMini {
             sb.append(c);
             i++;
         }
-        nextIndex = i;
+        next[0] = i;
         return sb.toString();
     }
 
-    private static String readValue(String s, int i) {
+    private static String readValue(String s, int i, int[] next) {
         i = skipWs(s, i);
-        if (i >= s.length()) { nextIndex = i; return ""; }
+        if (i >= s.length()) { next[0] = i; return ""; }
         char c = s.charAt(i);
         if (c == '"') {
-            String str = readString(s, i);
-            nextIndex = nextIndex;
+            String str = readString(s, i, next);
             return "\"" + str.replace("\"", "\\\"") + "\"";
         }
         if (c == '{') {
             int end = matchBrace(s, i, '{', '}');
-            nextIndex = end;
+            next[0] = end;
             return s.substring(i, end);
         }
         if (c == '[') {
             int end = matchBrace(s, i, '[', ']');
-            nextIndex = end;
+            next[0] = end;
             return s.substring(i, end);
         }
 
@@ -216,7 +219,7 @@ public final class JsonMini {
             if (cc == ',' || cc == '}' || cc == ']') break;
             j++;
         }
-        nextIndex = j;
+        next[0] = j;
         return s.substring(i, j).trim();
     }
 
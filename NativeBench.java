@@ -0,0 +1,20 @@
+// Bench-only JNI hooks (bench_impl.cpp), kept off the NativeBridge surface the app uses.
+// Each call builds its own private graph or student store: no Backend is touched, and the
+// JSON it returns is timing data for Bench, not an API.
+final class NativeBench {
+
+    static {
+        NativeBridge.ensureLoaded();
+    }
+
+    private NativeBench() {}
+
+    // List vs CSR traversal timings on a private random graph.
+    static native String navBenchmarkCsr(int nodes, int edges, int sources);
+    // Dijkstra sweeps, binary heap vs Dial buckets, weights in [1, maxWeight].
+    static native String navBenchmarkQueue(int nodes, int edges, int sources, int maxWeight);
+    // Dijkstra vs hierarchy routes on a private side x side grid (hierarchy saved to `path`).
+    static native String navBenchmarkHierarchy(int side, int queries, String path);
+    // CSV import vs binary snapshot load of `records` students written to csvPath.
+    static native String sisBenchmarkLoad(int records, String csvPath);
+}
@@ -3,6 +3,9 @@ public class NativeBridge {
     // Native backend handle (no global state on C++ side)
     private long handle = 0;
 
+    // Off-EDT facade (created on first use)
+    private AsyncNativeBridge async;
+
     static {
         // Cross-platform JNI loader:
         // - Windows: Cpp-Native/campus_backend.dll
@@ -35,15 +38,52 @@ public class NativeBridge {
         }
 }
 
+    // Runs the loader above; for NativeBench, which shares this library.
+    static void ensureLoaded() {}
+
+    // Natives are thread-safe: native_impl.cpp holds a reader/writer gate, so lookups run
+    // in parallel and mutations (upsert, delete, attendance, import/export) are exclusive.
+
     // Core
     public native String testConnection();
     public native boolean init(String csvPath);
     public native void close();
 
     // Navigator (Graph + BFS/Dijkstra)
+    // Route algorithm ids for the id-based calls (RouteAlgo in graph.h).
+    public static final int ROUTE_BFS = 0;
+    public static final int ROUTE_DIJKSTRA = 1;
+    public static final int ROUTE_ASTAR = 2;
+    public static final int ROUTE_BIDIJKSTRA = 3;
+
+    // Location i has id i; the table only grows at the end, so callers can cache it.
     public native String[] navLocations();
+    // algorithm: "BFS", "Dijkstra", "AStar" (straight-line heuristic) or "BiDijkstra"
     public native String navShortestPath(String src, String dest, String algorithm);
+    // {totalPairs, divergedPairs, percent, recomputedSources, elapsedUs}
     public native String navDivergenceReport();
+    // Binary route (BinMini.route); navShortestPath stays as the JSON/debug form.
+    public native byte[] navShortestPathBin(String src, String dest, String algorithm);
+    // Route by location id, decoded with BinMini.route(int[], String[]):
+    // ok, distance, hops, cost, settled, pathCount, path ids, edge weights, visitedCount, visited ids
+    public native int[] navShortestPathIds(int src, int dst, int algo);
+    // Routes for (srcIds[i], dstIds[i]), one search tree per distinct source. Per query, in
+    // order: distance (-1 = no route), hops, cost, pathCount, path ids
+    public native int[] navShortestPathBatch(int[] srcIds, int[] dstIds, int algo);
+    // Whole search tree from src: { dist, prev }, indexed by location id. dist = hops (BFS) or
+    // cost (other algos), -1 = unreachable; prev = -1 at src and for unreachable ids.
+    public native int[][] navShortestPathTree(int src, int algo);
+    // Everything within `budget` of src (cost; hops for ROUTE_BFS): { ids, dist, prev } in
+    // settle order. The search only explores the region it returns.
+    public native int[][] navReachable(int src, int budget, int algo);
+    // Route LRU counters: {hits, misses, evictions, size, capacity, version}
+    public native String navCacheStats();
+    // Map builds in this process: {seeds, copies, sharedBy, shared}; seeds stays 1 while
+    // routes are served from the shared default map.
+    public native String navGraphStats();
+    // Contraction hierarchy for Dijkstra routes: loads `path` if it matches this map, else
+    // builds and saves it ("" = memory only). {ok, loaded, saved, nodes, shortcuts, arcs, elapsedMs}
+    public native String navBuildHierarchy(String path);
 
     // Student Information System (AVL + searching/sorting)
     public native String sisUpsertStudent(int roll, String name, String program, int year);
@@ -51,13 +91,35 @@ public class NativeBridge {
     public native String sisGetStudentTrace(int roll);
     public native String sisDeleteStudent(int roll);
     public native String sisListStudents();
+    public native byte[] sisListStudentsBin(); // BinMini.students
     public native String sisImportCsv(String csvPath);
+    // Same, reporting 0..100 to onPercent from the calling thread while the CSV is parsed.
+    // The listener must not call back into the bridge (the import holds the write gate).
+    public native String sisImportCsv(String csvPath, java.util.function.IntConsumer onPercent);
     public native String sisExportCsv(String csvPath);
+    // Node pool counters {students, attendanceIndex, edges}, each {requests, reused, slabs, capacity, live}.
+    public native String sisAllocStats();
     // Attendance (stored in student records)
     public native String attNewSessionDay();
     public native String attMarkPresent(int roll);
+    // One JNI crossing for a whole class list: status[i] = 1 marked, 2 already present, 0 unknown roll;
+    // status[rolls.length] = 1 if the batch was saved, 0 if the journal write failed.
+    public native int[] attMarkPresentBatch(int[] rolls);
     public native String attGetSummary(int roll);
     public native String attGetDefaulters(int minPercent);
+    public native byte[] attGetDefaultersBin(int minPercent); // BinMini.defaulters
+    // Only the `limit` lowest (lowest first, ties by roll): O(n log k) instead of a full heap.
+    public native String attGetDefaulters(int minPercent, int limit);
+    public native byte[] attGetDefaultersBin(int minPercent, int limit);
+    // Order-statistic index on (percent, roll): O(log n) each.
+    public native int attCountBelow(int minPercent);
+    public native String attLowest(int k); // same rows as attGetDefaulters, lowest first
+    public native String attPercentileRank(int roll); // {roll, percent, rank, below, count, percentile}, "" if unknown
+
+    public synchronized AsyncNativeBridge async() {
+        if (async == null) async = new AsyncNativeBridge(this);
+        return async;
+    }
 
     public NativeBridge() {
         // Default data file (try to locate repo-root /data/students.csv)
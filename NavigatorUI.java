@@ -8,15 +8,18 @@ import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 public class NavigatorUI extends JPanel {
     private final NativeBridge nb;
     private final JLayeredPane layers;
 
+    private final String[] locations; // id table: combo index = location id
     private final JComboBox<String> src;
     private final JComboBox<String> dst;
     private String algorithm = "Dijkstra";
 
+    private final JTextField budget = new JTextField("10");
     private final JLabel out = new JLabel("Pick two locations to compute the shortest route.");
     private final JLabel compare = new JLabel(" ");
     private final JLabel explain = new JLabel(" ");
@@ -36,6 +39,7 @@ public class NavigatorUI extends JPanel {
         setLayout(null);
 
         String[] nodes = safe(nb.navLocations());
+        locations = nodes;
         src = new JComboBox<>(nodes);
         dst = new JComboBox<>(nodes);
         UIStyle.comboBox(src);
@@ -125,6 +129,19 @@ public class NavigatorUI extends JPanel {
             graph.animateRace(lastBfsPath, lastBfsVisited, lastBfsEdgeW, lastDijPath, lastDijVisited, lastDijEdgeW, lastWinner);
         });
 
+        ModernButton heat = new ModernButton("Travel-time Heatmap", Theme.CARD, Theme.CARD_2);
+        heat.addActionListener(e -> heatmap());
+
+        ModernButton reach = new ModernButton("Reachable Within", Theme.CARD, Theme.CARD_2);
+        reach.addActionListener(e -> reachable());
+        budget.setOpaque(true);
+        budget.setForeground(Theme.TEXT);
+        budget.setCaretColor(Theme.TEXT);
+        budget.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(new java.awt.Color(255, 255, 255, 30), 1, true),
+                BorderFactory.createEmptyBorder(6, 10, 6, 10)));
+        budget.setToolTipText("Budget from \"From\": walking cost (Shortest Distance) or stops (Fewest Stops)");
+
         out.setForeground(Theme.TEXT);
         out.setBorder(BorderFactory.createEmptyBorder(0, 12, 0, 0));
         compare.setForeground(Theme.MUTED);
@@ -142,6 +159,9 @@ public class NavigatorUI extends JPanel {
         controls.add(run);
         controls.add(cmp);
         controls.add(replay);
+        controls.add(heat);
+        controls.add(budget);
+        controls.add(reach);
         controls.add(out);
         controls.add(compare);
         controls.add(explain);
@@ -186,6 +206,9 @@ public class NavigatorUI extends JPanel {
                 out.setBounds(cx, toggleY + 180, leftW - 36, 22);
                 compare.setBounds(cx, toggleY + 202, leftW - 36, 18);
                 explain.setBounds(cx, toggleY + 226, leftW - 36, 46);
+                heat.setBounds(cx, toggleY + 280, leftW - 36, 34);
+                budget.setBounds(cx, toggleY + 322, 90, 34);
+                reach.setBounds(cx + 100, toggleY + 322, leftW - 36 - 100, 34);
             }
         });
 
@@ -209,25 +232,39 @@ public class NavigatorUI extends JPanel {
             return;
         }
 
-        String json = nb.navShortestPath(a, b, algorithm);
-        java.util.Map<String, String> o = JsonMini.obj(json);
-        if (!JsonMini.asBool(o.get("ok"))) {
-            Toast.show(layers, JsonMini.asString(o.getOrDefault("error", "Route not found.")), Theme.DANGER);
+        String alg = algorithm;
+        AsyncNativeBridge.onEdt(route(src.getSelectedIndex(), dst.getSelectedIndex(), alg),
+                o -> showRoute(o, alg), t -> Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER));
+    }
+
+    // Routes go by location id; names come back from the cached id table.
+    private java.util.concurrent.CompletableFuture<BinMini.Route> route(int a, int b, String alg) {
+        int algo = "BFS".equals(alg) ? NativeBridge.ROUTE_BFS : NativeBridge.ROUTE_DIJKSTRA;
+        return nb.async().navShortestPathIds(a, b, algo).thenApply(data -> {
+            BinMini.Route r = BinMini.route(data, locations);
+            r.algorithm = alg;
+            return r;
+        });
+    }
+
+    private void showRoute(BinMini.Route o, String algorithm) {
+        if (!o.ok) {
+            Toast.show(layers, "No route found (check locations).", Theme.DANGER);
             out.setText("No route found.");
             graph.animateTraversal(java.util.Collections.emptyList(), java.util.Collections.emptyList(), java.util.Collections.emptyList(), algorithm);
             return;
         }
 
-        int hops = JsonMini.asInt(o.get("hops"), -1);
-        int cost = JsonMini.asInt(o.get("cost"), -1);
-        java.util.List<String> path = JsonMini.arrStrings(o.get("path"));
-        java.util.List<String> visited = JsonMini.arrStrings(o.get("visited"));
-        java.util.List<Integer> edgeW = JsonMini.arrInts(o.get("edgeWeights"));
+        int hops = o.hops;
+        int cost = o.cost;
+        java.util.List<String> path = o.path;
+        java.util.List<String> visited = o.visited;
+        java.util.List<Integer> edgeW = o.edgeWeights;
 
-        if ("BFS".equals(JsonMini.asString(o.get("algorithm")))) {
+        if ("BFS".equals(o.algorithm)) {
             out.setText("BFS: hops " + hops + " • cost " + cost + "   •   Path: " + String.join(" → ", path));
         } else {
-            out.setText("Dijkstra: cost " + cost + " • hops " + hops + "   •   Path: " + String.join(" → ", path));
+            out.setText(o.algorithm + ": cost " + cost + " • hops " + hops + "   •   Path: " + String.join(" → ", path));
         }
         compare.setText("Tip: click Compare to see both algorithms at once.");
         chips.setChips(new String[] { "Visited: " + visited.size(), "Hops: " + hops, "Cost: " + cost },
@@ -254,24 +291,105 @@ public class NavigatorUI extends JPanel {
             return;
         }
 
-        java.util.Map<String, String> bfs = JsonMini.obj(nb.navShortestPath(a, b, "BFS"));
-        java.util.Map<String, String> dij = JsonMini.obj(nb.navShortestPath(a, b, "Dijkstra"));
-        if (!JsonMini.asBool(bfs.get("ok")) || !JsonMini.asBool(dij.get("ok"))) {
+        // Both searches queue on the backend thread; the race starts once both are decoded.
+        int ia = src.getSelectedIndex();
+        int ib = dst.getSelectedIndex();
+        AsyncNativeBridge.onEdt(
+                route(ia, ib, "BFS").thenCombine(route(ia, ib, "Dijkstra"), (bfs, dij) -> new BinMini.Route[] { bfs, dij }),
+                r -> showRace(r[0], r[1]),
+                t -> Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER));
+    }
+
+    // One native call for the whole tree from "From"; nearest/farthest are read off dist here.
+    private void heatmap() {
+        int s = src.getSelectedIndex();
+        if (s < 0) {
+            Toast.show(layers, "Pick a source location.", Theme.DANGER);
+            return;
+        }
+        String alg = algorithm;
+        int algo = "BFS".equals(alg) ? NativeBridge.ROUTE_BFS : NativeBridge.ROUTE_DIJKSTRA;
+        AsyncNativeBridge.onEdt(nb.async().navShortestPathTree(s, algo), tree -> showHeatmap(s, tree, alg),
+                t -> Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER));
+    }
+
+    private void showHeatmap(int s, int[][] tree, String alg) {
+        if (tree == null || tree.length < 2) return;
+        int[] dist = tree[0];
+        int nearest = -1, farthest = -1, reachable = 0;
+        for (int i = 0; i < dist.length; i++) {
+            if (i == s || dist[i] < 0) continue;
+            reachable++;
+            if (nearest < 0 || dist[i] < dist[nearest]) nearest = i;
+            if (farthest < 0 || dist[i] > dist[farthest]) farthest = i;
+        }
+        String unit = "BFS".equals(alg) ? " hops" : "";
+        String from = locations[s];
+        out.setText("Heatmap from " + from + " (" + ("BFS".equals(alg) ? "hops" : "walking cost") + ")");
+        compare.setText("Reachable: " + reachable + " of " + (dist.length - 1) + " locations");
+        chips.setChips(new String[] {
+                nearest < 0 ? "Nearest: -" : "Nearest: " + locations[nearest] + " " + dist[nearest] + unit,
+                farthest < 0 ? "Farthest: -" : "Farthest: " + locations[farthest] + " " + dist[farthest] + unit },
+                new java.awt.Color[] { Theme.ACCENT_2, Theme.CARD_2 });
+        explain.setText("<html><b>Shortest-path tree</b>: every location colored by its distance from " + from
+                + ".<br/>Lines show the route each one is reached by.</html>");
+        graph.showHeatmap(tree[0], tree[1], alg);
+    }
+
+    // Isochrone from "From": only the region inside the budget is searched and drawn.
+    private void reachable() {
+        int s = src.getSelectedIndex();
+        int b;
+        try {
+            b = Integer.parseInt(budget.getText().trim());
+        } catch (NumberFormatException e) {
+            b = -1;
+        }
+        if (s < 0 || b < 0) {
+            Toast.show(layers, "Pick a source and enter a budget of 0 or more.", Theme.DANGER);
+            return;
+        }
+        int limit = b;
+        String alg = algorithm;
+        int algo = "BFS".equals(alg) ? NativeBridge.ROUTE_BFS : NativeBridge.ROUTE_DIJKSTRA;
+        AsyncNativeBridge.onEdt(nb.async().navReachable(s, limit, algo), r -> showReachable(s, limit, r, alg),
+                t -> Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER));
+    }
+
+    private void showReachable(int s, int limit, int[][] r, String alg) {
+        if (r == null || r.length < 3) return;
+        String unit = "BFS".equals(alg) ? " stops" : " cost";
+        out.setText("Reachable from " + locations[s] + " within " + limit + unit);
+        compare.setText(r[0].length + " of " + locations.length + " locations (nearest first)");
+        StringBuilder list = new StringBuilder();
+        for (int i = 1; i < r[0].length && i <= 6; i++) {
+            if (list.length() > 0) list.append(", ");
+            list.append(locations[r[0][i]]).append(' ').append(r[1][i]);
+        }
+        if (r[0].length > 7) list.append(", ...");
+        explain.setText("<html><b>Within budget</b>: " + (list.length() == 0 ? "only the start" : list) + "</html>");
+        chips.setChips(new String[] { "Reachable: " + r[0].length, "Budget: " + limit + unit },
+                new java.awt.Color[] { Theme.ACCENT_2, Theme.CARD_2 });
+        graph.showReachable(r[0], r[1], r[2], limit, alg);
+    }
+
+    private void showRace(BinMini.Route bfs, BinMini.Route dij) {
+        if (!bfs.ok || !dij.ok) {
             Toast.show(layers, "Comparison failed (route not found).", Theme.DANGER);
             return;
         }
 
-        int bfsHops = JsonMini.asInt(bfs.get("hops"), -1);
-        int bfsCost = JsonMini.asInt(bfs.get("cost"), -1);
-        int dijHops = JsonMini.asInt(dij.get("hops"), -1);
-        int dijCost = JsonMini.asInt(dij.get("cost"), -1);
-
-        java.util.List<String> bfsPath = JsonMini.arrStrings(bfs.get("path"));
-        java.util.List<String> dijPath = JsonMini.arrStrings(dij.get("path"));
-        java.util.List<String> bfsVisited = JsonMini.arrStrings(bfs.get("visited"));
-        java.util.List<String> dijVisited = JsonMini.arrStrings(dij.get("visited"));
-        java.util.List<Integer> bfsEdgeW = JsonMini.arrInts(bfs.get("edgeWeights"));
-        java.util.List<Integer> dijEdgeW = JsonMini.arrInts(dij.get("edgeWeights"));
+        int bfsHops = bfs.hops;
+        int bfsCost = bfs.cost;
+        int dijHops = dij.hops;
+        int dijCost = dij.cost;
+
+        java.util.List<String> bfsPath = bfs.path;
+        java.util.List<String> dijPath = dij.path;
+        java.util.List<String> bfsVisited = bfs.visited;
+        java.util.List<String> dijVisited = dij.visited;
+        java.util.List<Integer> bfsEdgeW = bfs.edgeWeights;
+        java.util.List<Integer> dijEdgeW = dij.edgeWeights;
 
         out.setText("Algorithm Race: BFS vs Dijkstra");
         boolean costWinnerDij = (dijCost >= 0 && bfsCost >= 0 && dijCost < bfsCost);
@@ -5,8 +5,6 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.GridLayout;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import javax.swing.BorderFactory;
@@ -32,6 +30,7 @@ public class StudentInfoUI extends JPanel {
     private final JTextField year = field("Semester (1-8)");
 
     private final FolderCabinetView cabinet = new FolderCabinetView();
+    private final ModernButton importButton = new ModernButton("Import CSV", Theme.CARD, Theme.CARD_2);
 
     public StudentInfoUI(NativeBridge nb, JLayeredPane layers) {
         this.nb = nb;
@@ -101,7 +100,7 @@ public class StudentInfoUI extends JPanel {
         ModernButton search = new ModernButton("Search", Theme.CARD, Theme.CARD_2);
         ModernButton del = new ModernButton("Delete", Theme.DANGER, Theme.ACCENT);
         ModernButton refresh = new ModernButton("Refresh", Theme.CARD, Theme.CARD_2);
-        ModernButton imp = new ModernButton("Import CSV", Theme.CARD, Theme.CARD_2);
+        ModernButton imp = importButton;
         ModernButton exp = new ModernButton("Export CSV", Theme.CARD, Theme.CARD_2);
 
         save.addActionListener(e -> save());
@@ -234,26 +233,28 @@ public class StudentInfoUI extends JPanel {
         if (n.length() > 50) { Toast.show(layers, "Name is too long (max 50 chars).", Theme.DANGER); return; }
         if (p.length() > 20) { Toast.show(layers, "Program is too long (max 20 chars).", Theme.DANGER); return; }
 
-        String res = nb.sisUpsertStudent(r, n, p, y);
-        Map<String, String> o = JsonMini.obj(res);
-        if (JsonMini.asBool(o.get("ok"))) {
+        AsyncNativeBridge async = nb.async();
+        AsyncNativeBridge.onEdt(async.sisUpsertStudent(r, n, p, y), res -> {
+            Map<String, String> o = JsonMini.obj(res);
+            if (!JsonMini.asBool(o.get("ok"))) {
+                Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "Insert failed.")), Theme.DANGER);
+                return;
+            }
             Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "Student added.")), Theme.OK);
             // animate insert into cabinet
-            String js = nb.sisGetStudent(r);
-            Map<String, String> so = JsonMini.obj(js);
-            FolderCabinetView.Record rr = new FolderCabinetView.Record();
-            rr.roll = JsonMini.asInt(so.get("roll"), r);
-            rr.name = JsonMini.asString(so.get("name"));
-            rr.program = JsonMini.asString(so.get("program"));
-            rr.semester = JsonMini.asInt(so.get("year"), y);
-            rr.present = JsonMini.asInt(so.get("present"), 0);
-            rr.total = JsonMini.asInt(so.get("total"), 0);
-            // refresh list and animate reflow
-            refresh(true);
-            cabinet.animateInsert(rr, 0);
-        } else {
-            Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "Insert failed.")), Theme.DANGER);
-        }
+            AsyncNativeBridge.onEdt(async.sisGetStudent(r), js -> {
+                Map<String, String> so = JsonMini.obj(js);
+                FolderCabinetView.Record rr = new FolderCabinetView.Record();
+                rr.roll = JsonMini.asInt(so.get("roll"), r);
+                rr.name = JsonMini.asString(so.get("name"));
+                rr.program = JsonMini.asString(so.get("program"));
+                rr.semester = JsonMini.asInt(so.get("year"), y);
+                rr.present = JsonMini.asInt(so.get("present"), 0);
+                rr.total = JsonMini.asInt(so.get("total"), 0);
+                // refresh list and animate reflow
+                refresh(true, () -> cabinet.animateInsert(rr, 0));
+            }, this::backendError);
+        }, this::backendError);
     }
 
     private void importCsv() {
@@ -263,10 +264,26 @@ public class StudentInfoUI extends JPanel {
         if (res != javax.swing.JFileChooser.APPROVE_OPTION) return;
         java.io.File f = fc.getSelectedFile();
         if (f == null) return;
-        Map<String, String> o = JsonMini.obj(nb.sisImportCsv(f.getAbsolutePath()));
-        Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
-        // conveyor belt feel: reflow in
-        refresh(true);
+        // Large rosters take a while: show the parse progress on the button instead of a frozen UI.
+        importButton.setEnabled(false);
+        importButton.setText("Importing 0%");
+        AsyncNativeBridge.onEdt(nb.async().sisImportCsv(f.getAbsolutePath(), p -> {
+            if (!importButton.isEnabled()) importButton.setText("Importing " + p + "%");
+        }), json -> {
+            importDone();
+            Map<String, String> o = JsonMini.obj(json);
+            Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
+            // conveyor belt feel: reflow in
+            refresh(true);
+        }, e -> {
+            importDone();
+            backendError(e);
+        });
+    }
+
+    private void importDone() {
+        importButton.setText("Import CSV");
+        importButton.setEnabled(true);
     }
 
     private void exportCsv() {
@@ -276,58 +293,61 @@ public class StudentInfoUI extends JPanel {
         if (res != javax.swing.JFileChooser.APPROVE_OPTION) return;
         java.io.File f = fc.getSelectedFile();
         if (f == null) return;
-        Map<String, String> o = JsonMini.obj(nb.sisExportCsv(f.getAbsolutePath()));
-        Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
-        // tiny \"fly to folder\" pulse
-        cabinet.animateExportPulse();
+        AsyncNativeBridge.onEdt(nb.async().sisExportCsv(f.getAbsolutePath()), json -> {
+            Map<String, String> o = JsonMini.obj(json);
+            Toast.show(layers, JsonMini.asString(o.getOrDefault("message", "OK")), JsonMini.asBool(o.get("ok")) ? Theme.OK : Theme.DANGER);
+            // tiny \"fly to folder\" pulse
+            cabinet.animateExportPulse();
+        }, this::backendError);
     }
 
     private void search() {
         Integer r = parseIntStrict(roll.getText());
         if (r == null || r <= 0) { Toast.show(layers, "Enter a valid numeric roll to search.", Theme.DANGER); return; }
 
-        String json = nb.sisGetStudentTrace(r);
-        if (json == null || json.trim().isEmpty()) {
-            Toast.show(layers, "Student not found.", Theme.DANGER);
-            return;
-        }
-        Map<String, String> o = JsonMini.obj(json);
-        name.setText(JsonMini.asString(o.get("name")));
-        program.setText(JsonMini.asString(o.get("program")));
-        year.setText(String.valueOf(JsonMini.asInt(o.get("year"), 1)));
-        Toast.show(layers, "Record loaded.", Theme.OK);
-        java.util.List<Integer> trace = JsonMini.arrInts(o.get("visited"));
-        cabinet.animateSearchTrace(trace, r);
+        AsyncNativeBridge.onEdt(nb.async().sisGetStudentTrace(r), json -> {
+            if (json == null || json.trim().isEmpty()) {
+                Toast.show(layers, "Student not found.", Theme.DANGER);
+                return;
+            }
+            Map<String, String> o = JsonMini.obj(json);
+            name.setText(JsonMini.asString(o.get("name")));
+            program.setText(JsonMini.asString(o.get("program")));
+            year.setText(String.valueOf(JsonMini.asInt(o.get("year"), 1)));
+            Toast.show(layers, "Record loaded.", Theme.OK);
+            java.util.List<Integer> trace = JsonMini.arrInts(o.get("visited"));
+            cabinet.animateSearchTrace(trace, r);
+        }, this::backendError);
     }
 
     private void delete() {
         Integer r = parseIntStrict(roll.getText());
         if (r == null || r <= 0) { Toast.show(layers, "Enter a valid numeric roll to delete.", Theme.DANGER); return; }
-        String json = nb.sisDeleteStudent(r);
-        Map<String, String> o = JsonMini.obj(json);
-        if (JsonMini.asBool(o.get("ok"))) Toast.show(layers, JsonMini.asString(o.get("message")), Theme.OK);
-        else Toast.show(layers, JsonMini.asString(o.get("message")), Theme.DANGER);
-        if (JsonMini.asBool(o.get("ok"))) cabinet.animateDelete(r);
-        refresh(true);
+        AsyncNativeBridge.onEdt(nb.async().sisDeleteStudent(r), json -> {
+            Map<String, String> o = JsonMini.obj(json);
+            if (JsonMini.asBool(o.get("ok"))) Toast.show(layers, JsonMini.asString(o.get("message")), Theme.OK);
+            else Toast.show(layers, JsonMini.asString(o.get("message")), Theme.DANGER);
+            if (JsonMini.asBool(o.get("ok"))) cabinet.animateDelete(r);
+            refresh(true);
+        }, this::backendError);
     }
 
-    private void refresh() { refresh(false); }
-
-    private void refresh(boolean animate) {
-        cabinet.clearSearch();
-        List<Map<String, String>> arr = JsonMini.arrObjects(nb.sisListStudents());
-        List<FolderCabinetView.Record> recs = new ArrayList<>();
-        for (Map<String, String> o : arr) {
-            FolderCabinetView.Record r = new FolderCabinetView.Record();
-            r.roll = JsonMini.asInt(o.get("roll"), 0);
-            r.name = JsonMini.asString(o.get("name"));
-            r.program = JsonMini.asString(o.get("program"));
-            r.semester = JsonMini.asInt(o.get("year"), 1);
-            r.present = JsonMini.asInt(o.get("present"), 0);
-            r.total = JsonMini.asInt(o.get("total"), 0);
-            recs.add(r);
-        }
-        cabinet.setRecords(recs, animate);
+    private void refresh() { refresh(false, null); }
+
+    private void refresh(boolean animate) { refresh(animate, null); }
+
+    // Loads and decodes on the backend thread; the cabinet is updated on the EDT.
+    private void refresh(boolean animate, Runnable then) {
+        // Binary transport: decoded straight into cabinet records (sisListStudents keeps the JSON form).
+        AsyncNativeBridge.onEdt(nb.async().sisListStudentsBin().thenApply(BinMini::students), recs -> {
+            cabinet.clearSearch();
+            cabinet.setRecords(recs, animate);
+            if (then != null) then.run();
+        }, this::backendError);
+    }
+
+    private void backendError(Throwable t) {
+        Toast.show(layers, "Backend call failed: " + t.getMessage(), Theme.DANGER);
     }
 
     private static JTextField field(String placeholder) {
@@ -0,0 +1,144 @@
+#include "attendance_index.h"
+static inline int imax(int a, int b) { return a > b ? a : b; }
+AttendanceIndex::~AttendanceIndex() {
+  clear();
+}
+void AttendanceIndex::clear() {
+  pool_.reset();
+  root_ = nullptr;
+}
+int AttendanceIndex::height(Node* n) { return n ? n->h : 0; }
+int AttendanceIndex::size(Node* n) { return n ? n->size : 0; }
+int AttendanceIndex::bf(Node* n) { return n ? height(n->left) - height(n->right) : 0; }
+void AttendanceIndex::update(Node* n) {
+  if (!n) return;
+  n->h = 1 + imax(height(n->left), height(n->right));
+  n->size = 1 + size(n->left) + size(n->right);
+}
+AttendanceIndex::Node* AttendanceIndex::rotateRight(Node* y) {
+  Node* x = y->left;
+  Node* t2 = x->right;
+  x->right = y;
+  y->left = t2;
+  update(y);
+  update(x);
+  return x;
+}
+AttendanceIndex::Node* AttendanceIndex::rotateLeft(Node* x) {
+  Node* y = x->right;
+  Node* t2 = y->left;
+  y->left = x;
+  x->right = t2;
+  update(x);
+  update(y);
+  return y;
+}
+AttendanceIndex::Node* AttendanceIndex::balance(Node* n) {
+  update(n);
+  int b = bf(n);
+  if (b > 1) {
+    if (bf(n->left) < 0) n->left = rotateLeft(n->left);
+    return rotateRight(n);
+  }
+  if (b < -1) {
+    if (bf(n->right) > 0) n->right = rotateRight(n->right);
+    return rotateLeft(n);
+  }
+  return n;
+}
+AttendanceIndex::Node* AttendanceIndex::insertKey(Node* n, const Key& k, bool& inserted) {
+  if (!n) {
+    inserted = true;
+    return pool_.alloc(Node(k));
+  }
+  if (less(k, n->key)) n->left = insertKey(n->left, k, inserted);
+  else if (less(n->key, k)) n->right = insertKey(n->right, k, inserted);
+  else {
+    inserted = false;
+    return n;
+  }
+  return balance(n);
+}
+AttendanceIndex::Node* AttendanceIndex::minNode(Node* n) {
+  Node* cur = n;
+  while (cur && cur->left) cur = cur->left;
+  return cur;
+}
+AttendanceIndex::Node* AttendanceIndex::eraseKey(Node* n, const Key& k, bool& removed) {
+  if (!n) return nullptr;
+  if (less(k, n->key)) n->left = eraseKey(n->left, k, removed);
+  else if (less(n->key, k)) n->right = eraseKey(n->right, k, removed);
+  else {
+    removed = true;
+    if (!n->left || !n->right) {
+      Node* child = n->left ? n->left : n->right;
+      pool_.release(n);
+      return child;
+    }
+    Node* succ = minNode(n->right);
+    n->key = succ->key;
+    n->right = eraseKey(n->right, succ->key, removed);
+  }
+  return balance(n);
+}
+AttendanceIndex::Node* AttendanceIndex::buildRange(const std::vector<Key>& sorted, int lo, int hi) {
+  // [lo, hi): the middle key becomes the root, so heights differ by at most one.
+  if (lo >= hi) return nullptr;
+  int mid = lo + (hi - lo) / 2;
+  Node* n = pool_.alloc(Node(sorted[mid]));
+  n->left = buildRange(sorted, lo, mid);
+  n->right = buildRange(sorted, mid + 1, hi);
+  update(n);
+  return n;
+}
+bool AttendanceIndex::insert(int percent, int roll) {
+  bool inserted = false;
+  root_ = insertKey(root_, Key{clampPercent(percent), roll}, inserted);
+  return inserted;
+}
+bool AttendanceIndex::erase(int percent, int roll) {
+  bool removed = false;
+  root_ = eraseKey(root_, Key{clampPercent(percent), roll}, removed);
+  return removed;
+}
+void AttendanceIndex::buildSorted(const std::vector<Key>& sorted) {
+  clear();
+  pool_.reset(sorted.size());
+  root_ = buildRange(sorted, 0, (int)sorted.size());
+}
+int AttendanceIndex::countBelow(int percent) const {
+  // Every key with a smaller percent sorts before (percent, any roll > 0).
+  return rankOf(percent, 0);
+}
+int AttendanceIndex::rankOf(int percent, int roll) const {
+  Key k{percent < 0 ? -1 : (percent > 100 ? 101 : percent), roll};
+  int rank = 0;
+  Node* cur = root_;
+  while (cur) {
+    if (less(cur->key, k)) {
+      rank += size(cur->left) + 1;
+      cur = cur->right;
+    } else {
+      cur = cur->left;
+    }
+  }
+  return rank;
+}
+void AttendanceIndex::lowest(int k, std::vector<Key>& out) const {
+  out.clear();
+  int want = (k <= 0 || k > size()) ? size() : k;
+  out.reserve(want);
+  // Iterative in-order walk that stops after `want` keys: O(log n + k).
+  std::vector<Node*> stack;
+  Node* cur = root_;
+  while ((int)out.size() < want && (cur || !stack.empty())) {
+    while (cur) {
+      stack.push_back(cur);
+      cur = cur->left;
+    }
+    cur = stack.back();
+    stack.pop_back();
+    out.push_back(cur->key);
+    cur = cur->right;
+  }
+}
@@ -0,0 +1,70 @@
+#pragma once
+
+#include <vector>
+
+#include "dsa_level1.h"
+
+// Order-statistic AVL tree keyed by (attendance percent, roll): a secondary index next to
+// the roll-keyed AvlStudentDB. Every node also stores its subtree size, so "how many are
+// below p", "rank of (p, roll)" and "the k lowest" are O(log n) (+ k) instead of a scan.
+//
+// Percents are clamped to [0, 100] so the same record always maps to the same key.
+class AttendanceIndex {
+ public:
+  struct Key {
+    int percent;
+    int roll;
+  };
+
+  AttendanceIndex() = default;
+  AttendanceIndex(const AttendanceIndex&) = delete;
+  AttendanceIndex& operator=(const AttendanceIndex&) = delete;
+  ~AttendanceIndex();
+
+  static int clampPercent(int p) { return p < 0 ? 0 : (p > 100 ? 100 : p); }
+
+  bool insert(int percent, int roll); // false if the key is already present
+  bool erase(int percent, int roll);  // false if the key is missing
+  void clear();                       // O(slabs), see dsa::NodePool
+  // Replaces the contents with keys already sorted by (percent, roll): O(n), perfectly balanced.
+  void buildSorted(const std::vector<Key>& sorted);
+
+  int size() const { return size(root_); }
+  int countBelow(int percent) const;         // keys with percent < `percent`
+  int rankOf(int percent, int roll) const;   // keys ordered before (percent, roll)
+  // The k lowest keys, lowest first (ties by roll); k <= 0 or k > size() = all.
+  void lowest(int k, std::vector<Key>& out) const;
+
+  const dsa::PoolStats& poolStats() const { return pool_.stats(); }
+
+ private:
+  struct Node {
+    Key key;
+    Node* left = nullptr;
+    Node* right = nullptr;
+    int h = 1;
+    int size = 1;
+    explicit Node(const Key& k) : key(k) {}
+  };
+
+  Node* root_ = nullptr;
+  dsa::NodePool<Node> pool_;
+
+  static bool less(const Key& a, const Key& b) {
+    return a.percent < b.percent || (a.percent == b.percent && a.roll < b.roll);
+  }
+
+  static int height(Node* n);
+  static int size(Node* n);
+  static int bf(Node* n);
+  static void update(Node* n);
+
+  static Node* rotateRight(Node* y);
+  static Node* rotateLeft(Node* x);
+  static Node* balance(Node* n);
+
+  Node* insertKey(Node* n, const Key& k, bool& inserted);
+  Node* eraseKey(Node* n, const Key& k, bool& removed);
+  static Node* minNode(Node* n);
+  Node* buildRange(const std::vector<Key>& sorted, int lo, int hi);
+};
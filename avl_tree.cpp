@@ -4,7 +4,7 @@ AvlStudentDB::~AvlStudentDB() {
   clear();
 }
 void AvlStudentDB::clear() {
-  destroy(root_);
+  pool_.reset();
   root_ = nullptr;
   size_ = 0;
 }
@@ -48,7 +48,7 @@ AvlStudentDB::Node* AvlStudentDB::balance(Node* n) {
 AvlStudentDB::Node* AvlStudentDB::insertOnly(Node* n, const StudentRecord& r, bool& insertedNew) {
   if (!n) {
     insertedNew = true;
-    return new Node(r);
+    return pool_.alloc(Node(r));
   }
   if (r.roll < n->rec.roll) n->left = insertOnly(n->left, r, insertedNew);
   else if (r.roll > n->rec.roll) n->right = insertOnly(n->right, r, insertedNew);
@@ -79,7 +79,7 @@ AvlStudentDB::Node* AvlStudentDB::erase(Node* n, int roll, bool& removed) {
     removed = true;
     if (!n->left || !n->right) {
       Node* child = n->left ? n->left : n->right;
-      delete n;
+      pool_.release(n);
       return child;
     }
     Node* succ = minNode(n->right);
@@ -88,11 +88,15 @@ AvlStudentDB::Node* AvlStudentDB::erase(Node* n, int roll, bool& removed) {
   }
   return balance(n);
 }
-void AvlStudentDB::destroy(Node* n) {
-  if (!n) return;
-  destroy(n->left);
-  destroy(n->right);
-  delete n;
+AvlStudentDB::Node* AvlStudentDB::buildRange(std::vector<StudentRecord>& sorted, int lo, int hi) {
+  // [lo, hi): the middle record becomes the root, so heights differ by at most one.
+  if (lo >= hi) return nullptr;
+  int mid = lo + (hi - lo) / 2;
+  Node* n = pool_.alloc(Node(std::move(sorted[mid])));
+  n->left = buildRange(sorted, lo, mid);
+  n->right = buildRange(sorted, mid + 1, hi);
+  update(n);
+  return n;
 }
 void AvlStudentDB::inorderCollect(Node* n, std::vector<StudentRecord>& out) {
   if (!n) return;
@@ -106,6 +110,12 @@ bool AvlStudentDB::remove(int roll) {
   if (removed) size_--;
   return removed;
 }
+void AvlStudentDB::buildSorted(std::vector<StudentRecord>& sorted) {
+  clear();
+  pool_.reset(sorted.size()); // give back what an earlier, bigger roster needed
+  root_ = buildRange(sorted, 0, (int)sorted.size());
+  size_ = (int)sorted.size();
+}
 bool AvlStudentDB::insert(const StudentRecord& r) {
   bool insertedNew = false;
   root_ = insertOnly(root_, r, insertedNew);
@@ -3,6 +3,8 @@
 #include <string>
 #include <vector>
 
+#include "dsa_level1.h"
+
 struct StudentRecord {
   int roll = 0;
   std::string name;
@@ -28,9 +30,20 @@ class AvlStudentDB {
   // Like find(), but also returns the visited node keys (for UI search animation).
   bool findTrace(int roll, StudentRecord& out, std::vector<int>& visited) const;
   std::vector<StudentRecord> inorder() const;
+  // Replaces the contents with records sorted by strictly increasing roll: O(n) middle-out
+  // build, perfectly balanced, no rotations. Records are moved out of `sorted`.
+  void buildSorted(std::vector<StudentRecord>& sorted);
+
+  // In-place in-order visitor: fn(StudentRecord&) may change any field except roll (the key).
+  template <typename Fn>
+  void forEachMutable(Fn fn) { visitMutable(root_, fn); }
+  // Read-only in-order visitor (no record copies).
+  template <typename Fn>
+  void forEach(Fn fn) const { visit(root_, fn); }
 
   int size() const { return size_; }
-  void clear();
+  void clear(); // O(slabs): nodes go back to the pool without being visited
+  const dsa::PoolStats& poolStats() const { return pool_.stats(); }
 
  private:
   struct Node {
@@ -39,10 +52,12 @@ class AvlStudentDB {
     Node* right = nullptr;
     int h = 1;
     explicit Node(const StudentRecord& r) : rec(r) {}
+    explicit Node(StudentRecord&& r) : rec(std::move(r)) {}
   };
 
   Node* root_ = nullptr;
   int size_ = 0;
+  dsa::NodePool<Node> pool_;
 
   static int height(Node* n);
   static int bf(Node* n);
@@ -52,11 +67,25 @@ class AvlStudentDB {
   static Node* rotateLeft(Node* x);
   static Node* balance(Node* n);
 
-  static Node* insertOnly(Node* n, const StudentRecord& r, bool& insertedNew);
+  Node* insertOnly(Node* n, const StudentRecord& r, bool& insertedNew);
   static Node* updateOnly(Node* n, const StudentRecord& r, bool& updated);
-  static Node* erase(Node* n, int roll, bool& removed);
+  Node* erase(Node* n, int roll, bool& removed);
   static Node* minNode(Node* n);
+  Node* buildRange(std::vector<StudentRecord>& sorted, int lo, int hi);
 
-  static void destroy(Node* n);
+  template <typename Fn>
+  static void visitMutable(Node* n, Fn& fn) {
+    if (!n) return;
+    visitMutable(n->left, fn);
+    fn(n->rec);
+    visitMutable(n->right, fn);
+  }
+  template <typename Fn>
+  static void visit(const Node* n, Fn& fn) {
+    if (!n) return;
+    visit(n->left, fn);
+    fn(n->rec);
+    visit(n->right, fn);
+  }
   static void inorderCollect(Node* n, std::vector<StudentRecord>& out);
 };
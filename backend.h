@@ -8,8 +8,8 @@
 // Backend object (no global variables): one instance per Java NativeBridge.
 class Backend {
  public:
-  Backend(const std::string& studentCsvPath) : students(studentCsvPath) {}
+  Backend(const std::string& studentCsvPath) : nav(CampusGraph::sharedDefault()), students(studentCsvPath) {}
 
-  CampusGraph nav;
+  GraphRef nav; // the shared default map until the first edit (copy-on-write)
   StudentStore students;
 };
@@ -0,0 +1,286 @@
+#include <jni.h>
+
+#include <fstream>
+#include <iostream>
+#include <string>
+#include <vector>
+
+#include "graph.h"
+#include "student_store.h"
+#include "utils_json.h"
+
+// JNI side of NativeBench (used by Bench only). Every hook builds its own private graph or
+// store, so nothing here touches a Backend and the production NativeBridge surface has no
+// benchmark entry points.
+
+// The baseline knobs are private to CampusGraph; only these private bench graphs flip them.
+struct GraphBench {
+  static void listTraversal(CampusGraph& g, bool on) { g.setListTraversal(on); }
+  static void dijkstraQueue(CampusGraph& g, int mode) { g.setDijkstraQueue(mode); }
+};
+
+extern "C" {
+
+using jsonutil::Kv;
+
+// Monotonic clock (<chrono> is outside the header rule): a few lookups per benchmark.
+static long long nanoTime(JNIEnv* env) {
+  jclass sys = env->FindClass("java/lang/System");
+  jlong t = env->CallStaticLongMethod(sys, env->GetStaticMethodID(sys, "nanoTime", "()J"));
+  env->DeleteLocalRef(sys);
+  return (long long)t;
+}
+
+static std::string jstr(JNIEnv* env, jstring s) {
+  if (!s) return std::string();
+  const char* c = env->GetStringUTFChars(s, nullptr);
+  std::string out = c ? std::string(c) : std::string();
+  env->ReleaseStringUTFChars(s, c);
+  return out;
+}
+
+// Benchmark hook for `Bench graph`: builds a private random connected graph (no Backend
+// is involved), then times full BFS + Dijkstra sweeps and edgeWeight lookups over the
+// linked lists vs the CSR arrays.
+JNIEXPORT jstring JNICALL Java_NativeBench_navBenchmarkCsr(JNIEnv* env, jclass, jint nodes, jint edges, jint sources) {
+  int n = nodes < 2 ? 2 : (int)nodes;
+  int m = edges < n - 1 ? n - 1 : (int)edges;
+  int srcCount = sources < 1 ? 1 : (int)sources;
+  unsigned long long rng = 0x9E3779B97F4A7C15ULL;
+  auto next = [&rng](int bound) {
+    rng ^= rng << 13;
+    rng ^= rng >> 7;
+    rng ^= rng << 17;
+    return (int)(rng % (unsigned long long)bound);
+  };
+
+  long long t0 = nanoTime(env);
+  CampusGraph g;
+  std::vector<std::string> names((size_t)n);
+  for (int i = 0; i < n; i++) {
+    names[(size_t)i] = "N" + std::to_string(i);
+    g.addLocation(names[(size_t)i]);
+  }
+  int seeded = (int)g.locations().size() - n; // default map nodes come first
+  for (int i = 1; i < n; i++) g.addEdge(names[(size_t)i], names[(size_t)next(i)], 1 + next(20));
+  for (int e = n - 1; e < m; e++) g.addEdge(names[(size_t)next(n)], names[(size_t)next(n)], 1 + next(20));
+  long long t1 = nanoTime(env);
+  g.freeze();
+  long long t2 = nanoTime(env);
+
+  std::vector<int> dist, prev;
+  long long sweep[2] = {0, 0};
+  long long lookup[2] = {0, 0};
+  long long sink = 0;
+  for (int mode = 0; mode < 2; mode++) {
+    GraphBench::listTraversal(g, mode == 0);
+    unsigned long long saved = rng;
+    long long a = nanoTime(env);
+    for (int k = 0; k < srcCount; k++) {
+      int s = seeded + next(n);
+      g.searchTree(s, kRouteBfs, dist, prev);
+      sink += dist[(size_t)(seeded + next(n))];
+      g.searchTree(s, kRouteDijkstra, dist, prev);
+      sink += dist[(size_t)(seeded + next(n))];
+    }
+    long long b = nanoTime(env);
+    for (int k = 0; k < 200000; k++) sink += g.edgeWeight(seeded + next(n), seeded + next(n));
+    long long c = nanoTime(env);
+    sweep[mode] = b - a;
+    lookup[mode] = c - b;
+    rng = saved; // same sources and lookups for both modes
+  }
+  
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"nodes", std::to_string(n)});
+  kv.push_back(Kv{"edges", std::to_string(m)});
+  kv.push_back(Kv{"sources", std::to_string(srcCount)});
+  kv.push_back(Kv{"loadMs", std::to_string((t1 - t0) / 1000000)});
+  kv.push_back(Kv{"csrBuildMs", std::to_string((t2 - t1) / 1000000)});
+  kv.push_back(Kv{"listSweepMs", std::to_string(sweep[0] / 1000000)});
+  kv.push_back(Kv{"csrSweepMs", std::to_string(sweep[1] / 1000000)});
+  kv.push_back(Kv{"listLookupMs", std::to_string(lookup[0] / 1000000)});
+  kv.push_back(Kv{"csrLookupMs", std::to_string(lookup[1] / 1000000)});
+  kv.push_back(Kv{"checksum", std::to_string(sink)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+// Benchmark hook for `Bench queue`: full Dijkstra sweeps on a private random graph with
+// weights in [1, maxWeight], binary heap vs Dial buckets (distances must agree).
+JNIEXPORT jstring JNICALL Java_NativeBench_navBenchmarkQueue(JNIEnv* env, jclass, jint nodes, jint edges, jint sources, jint maxWeight) {
+  int n = nodes < 2 ? 2 : (int)nodes;
+  int m = edges < n - 1 ? n - 1 : (int)edges;
+  int srcCount = sources < 1 ? 1 : (int)sources;
+  int maxW = maxWeight < 1 ? 1 : (int)maxWeight;
+  unsigned long long rng = 0x9E3779B97F4A7C15ULL;
+  auto next = [&rng](int bound) {
+    rng ^= rng << 13;
+    rng ^= rng >> 7;
+    rng ^= rng << 17;
+    return (int)(rng % (unsigned long long)bound);
+  };
+
+  CampusGraph g;
+  std::vector<std::string> names((size_t)n);
+  for (int i = 0; i < n; i++) {
+    names[(size_t)i] = "Q" + std::to_string(i);
+    g.addLocation(names[(size_t)i]);
+  }
+  int seeded = (int)g.locations().size() - n;
+  for (int i = 1; i < n; i++) g.addEdge(names[(size_t)i], names[(size_t)next(i)], 1 + next(maxW));
+  for (int e = n - 1; e < m; e++) g.addEdge(names[(size_t)next(n)], names[(size_t)next(n)], 1 + next(maxW));
+  g.freeze();
+
+  std::vector<int> dist, prev;
+  std::vector<long long> sums[2];
+  long long elapsed[2] = {0, 0};
+  const int modes[2] = {kQueueHeap, kQueueBuckets};
+  for (int mode = 0; mode < 2; mode++) {
+    GraphBench::dijkstraQueue(g, modes[mode]);
+    unsigned long long saved = rng;
+    long long a = nanoTime(env);
+    for (int k = 0; k < srcCount; k++) {
+      g.searchTree(seeded + next(n), kRouteDijkstra, dist, prev);
+      long long sum = 0;
+      for (size_t v = 0; v < dist.size(); v++) sum += dist[v];
+      sums[mode].push_back(sum);
+    }
+    elapsed[mode] = nanoTime(env) - a;
+    rng = saved; // same sources for both queues
+  }
+  int mismatches = 0;
+  for (int k = 0; k < srcCount; k++) {
+    if (sums[0][(size_t)k] != sums[1][(size_t)k]) mismatches++;
+  }
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"nodes", std::to_string(n)});
+  kv.push_back(Kv{"edges", std::to_string(m)});
+  kv.push_back(Kv{"maxWeight", std::to_string(maxW)});
+  kv.push_back(Kv{"sources", std::to_string(srcCount)});
+  kv.push_back(Kv{"heapMs", std::to_string(elapsed[0] / 1000000)});
+  kv.push_back(Kv{"bucketMs", std::to_string(elapsed[1] / 1000000)});
+  kv.push_back(Kv{"mismatches", std::to_string(mismatches)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+// Benchmark hook for `Bench ch`: a private side x side street grid with random block
+// lengths. Times plain Dijkstra routes, the hierarchy build + save, a reload from `path`,
+// then the same routes through the hierarchy (costs must match).
+JNIEXPORT jstring JNICALL Java_NativeBench_navBenchmarkHierarchy(JNIEnv* env, jclass, jint side, jint queries, jstring path) {
+  int w = side < 2 ? 2 : (int)side;
+  int q = queries < 1 ? 1 : (int)queries;
+  unsigned long long rng = 0x9E3779B97F4A7C15ULL;
+  auto next = [&rng](int bound) {
+    rng ^= rng << 13;
+    rng ^= rng >> 7;
+    rng ^= rng << 17;
+    return (int)(rng % (unsigned long long)bound);
+  };
+
+  CampusGraph g;
+  std::vector<std::string> names((size_t)w * w);
+  for (int i = 0; i < w * w; i++) {
+    names[(size_t)i] = "J" + std::to_string(i);
+    g.addLocation(names[(size_t)i]);
+  }
+  for (int y = 0; y < w; y++) {
+    for (int x = 0; x < w; x++) {
+      int i = y * w + x;
+      if (x + 1 < w) g.addEdge(names[(size_t)i], names[(size_t)i + 1], 10 + next(10));
+      if (y + 1 < w) g.addEdge(names[(size_t)i], names[(size_t)(i + w)], 10 + next(10));
+    }
+  }
+  g.freeze();
+  std::vector<int> src((size_t)q), dst((size_t)q), cost((size_t)q);
+  for (int k = 0; k < q; k++) {
+    src[(size_t)k] = next(w * w);
+    dst[(size_t)k] = next(w * w);
+  }
+
+  long long settled[2] = {0, 0};
+  long long t0 = nanoTime(env);
+  for (int k = 0; k < q; k++) {
+    PathResult r = g.dijkstraShortestPath(names[(size_t)src[(size_t)k]], names[(size_t)dst[(size_t)k]]);
+    cost[(size_t)k] = r.cost;
+    settled[0] += r.settled;
+  }
+  long long t1 = nanoTime(env);
+  std::string file = jstr(env, path);
+  HierarchyInfo built = g.buildHierarchy(file);
+  long long t2 = nanoTime(env);
+  HierarchyInfo loaded = g.buildHierarchy(file);
+  long long t3 = nanoTime(env);
+  int mismatches = 0;
+  for (int k = 0; k < q; k++) {
+    PathResult r = g.dijkstraShortestPath(names[(size_t)src[(size_t)k]], names[(size_t)dst[(size_t)k]]);
+    if (r.cost != cost[(size_t)k]) mismatches++;
+    settled[1] += r.settled;
+  }
+  long long t4 = nanoTime(env);
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"nodes", std::to_string(w * w)});
+  kv.push_back(Kv{"queries", std::to_string(q)});
+  kv.push_back(Kv{"shortcuts", std::to_string(built.shortcuts)});
+  kv.push_back(Kv{"buildMs", std::to_string((t2 - t1) / 1000000)});
+  kv.push_back(Kv{"saved", built.saved ? "true" : "false"});
+  kv.push_back(Kv{"loaded", loaded.loaded ? "true" : "false"});
+  kv.push_back(Kv{"loadMs", std::to_string((t3 - t2) / 1000000)});
+  kv.push_back(Kv{"dijkstraUs", std::to_string((t1 - t0) / 1000 / q)});
+  kv.push_back(Kv{"hierarchyUs", std::to_string((t4 - t3) / 1000 / q)});
+  kv.push_back(Kv{"dijkstraSettled", std::to_string(settled[0] / q)});
+  kv.push_back(Kv{"hierarchySettled", std::to_string(settled[1] / q)});
+  kv.push_back(Kv{"mismatches", std::to_string(mismatches)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+// Benchmark hook for `Bench load`: writes `records` synthetic students to a private CSV at
+// `csvPath`, then times a first load (CSV import + first snapshot write) and a second load
+// of the same path (binary snapshot). The caller deletes the files afterwards.
+JNIEXPORT jstring JNICALL Java_NativeBench_sisBenchmarkLoad(JNIEnv* env, jclass, jint records, jstring csvPath) {
+  int n = records < 1 ? 1 : (int)records;
+  std::string path = jstr(env, csvPath);
+  {
+    std::ofstream out(path.c_str(), std::ios::out | std::ios::trunc);
+    if (!out.good()) return env->NewStringUTF("{\"ok\":false,\"message\":\"Cannot write CSV.\"}");
+    out << "roll,name,program,semester,present,total\n";
+    static const char* programs[4] = {"BSCS", "BSSE", "BBA", "BSAI"};
+    for (int i = 0; i < n; i++) {
+      out << (100000 + i) << ",Student " << i << ',' << programs[i % 4] << ',' << (1 + i % 8) << ','
+          << (i % 31) << ",30\n";
+    }
+  }
+  // The CSV is new, so drop any snapshot/journal left from an earlier run at this path.
+  std::ofstream(path + ".snap", std::ios::out | std::ios::trunc);
+  std::ofstream(path + ".snap.bak", std::ios::out | std::ios::trunc);
+  std::ofstream(path + ".journal", std::ios::out | std::ios::trunc);
+
+  // Load times only: each store is torn down outside its timed region.
+  long long csvNs, snapNs;
+  int csvCount, snapCount;
+  {
+    StudentStore fromCsv(path);
+    long long t0 = nanoTime(env);
+    fromCsv.load();
+    csvNs = nanoTime(env) - t0;
+    csvCount = fromCsv.count();
+  }
+  {
+    StudentStore fromSnap(path);
+    long long t0 = nanoTime(env);
+    fromSnap.load();
+    snapNs = nanoTime(env) - t0;
+    snapCount = fromSnap.count();
+  }
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"records", std::to_string(n)});
+  kv.push_back(Kv{"csvLoadMs", std::to_string(csvNs / 1000000)});
+  kv.push_back(Kv{"snapshotLoadMs", std::to_string(snapNs / 1000000)});
+  kv.push_back(Kv{"csvCount", std::to_string(csvCount)});
+  kv.push_back(Kv{"snapshotCount", std::to_string(snapCount)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+} // extern "C"
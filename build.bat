@@ -27,7 +27,7 @@ REM Compile the native library
 echo Compiling JNI backend (multiple C++ files)...
 g++ -std=c++17 -O2 -shared -o campus_backend.dll ^
   -I"%JAVA_HOME%\include" -I"%JAVA_HOME%\include\win32" ^
-  native_impl.cpp graph.cpp avl_tree.cpp student_store.cpp utils_json.cpp
+  native_impl.cpp graph.cpp contraction.cpp avl_tree.cpp attendance_index.cpp student_store.cpp utils_json.cpp utils_bin.cpp bench_impl.cpp
 
 REM Check if compilation succeeded
 if %errorlevel% neq 0 (
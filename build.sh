@@ -23,9 +23,13 @@ echo "Building ${OUT_LIB}"
 g++ -std=c++17 -O2 -fPIC -shared \
   "${ROOT_DIR}/native_impl.cpp" \
   "${ROOT_DIR}/graph.cpp" \
+  "${ROOT_DIR}/contraction.cpp" \
   "${ROOT_DIR}/avl_tree.cpp" \
+  "${ROOT_DIR}/attendance_index.cpp" \
   "${ROOT_DIR}/student_store.cpp" \
   "${ROOT_DIR}/utils_json.cpp" \
+  "${ROOT_DIR}/utils_bin.cpp" \
+  "${ROOT_DIR}/bench_impl.cpp" \
   "${JNI_INCLUDE[@]}" \
   -o "${OUT_LIB}"
 
@@ -0,0 +1,449 @@
+#include "contraction.h"
+
+#include <fstream>
+
+#include "dsa_min_heap.h"
+
+namespace {
+
+const int kInf = 1000000000;
+// Witness searches give up after this many settled nodes; a missed witness only costs an
+// extra (harmless) shortcut. Scoring a node only estimates, so it searches less.
+const int kWitnessSettleLimit = 500;
+const int kScoreSettleLimit = 50;
+
+struct Arc { int to; int w; int mid; };
+struct NodeDist { int d; int v; };
+struct Less { bool operator()(const NodeDist& a, const NodeDist& b) const { return a.d < b.d; } };
+
+struct QueryScratch {
+  std::vector<int> dist[2];
+  std::vector<int> prev[2];
+  std::vector<int> touched;
+  dsa::MinHeap<NodeDist, Less> pq[2];
+};
+
+// Working graph while contracting: per node, one arc per neighbour (the cheapest).
+struct Builder {
+  int n = 0;
+  std::vector<std::vector<Arc>> adj;
+  std::vector<char> contracted; // char, not bool: tested in the innermost loop
+  std::vector<int> deletedNeighbors;
+  std::vector<int> level; // 1 + highest level of a contracted neighbour
+  std::vector<int> dist;  // witness scratch, kInf outside `touched`
+  std::vector<int> touched;
+  std::vector<int> targetMark; // == targetStamp: a neighbour the running search must reach
+  int targetStamp = 0;
+  dsa::MinHeap<NodeDist, Less> pq;
+
+  void link(int a, int b, int w, int mid) {
+    std::vector<Arc>& row = adj[(size_t)a];
+    for (size_t i = 0; i < row.size(); i++) {
+      if (row[i].to != b) continue;
+      if (w < row[i].w) {
+        row[i].w = w;
+        row[i].mid = mid;
+      }
+      return;
+    }
+    row.push_back(Arc{b, w, mid});
+  }
+
+  // Dijkstra from src over uncontracted nodes other than `skip`, up to distance `limit`,
+  // stopping early once all `targets` marked nodes are settled.
+  void witness(int src, int skip, int limit, int settleLimit, int targets) {
+    for (size_t i = 0; i < touched.size(); i++) dist[(size_t)touched[i]] = kInf;
+    touched.clear();
+    pq.clear();
+    dist[(size_t)src] = 0;
+    touched.push_back(src);
+    pq.push(NodeDist{0, src});
+    int settled = 0;
+    while (!pq.empty()) {
+      NodeDist nd = pq.popMin();
+      if (nd.d > dist[(size_t)nd.v]) continue; // stale entry
+      if (nd.d > limit || ++settled > settleLimit) break;
+      if (targetMark[(size_t)nd.v] == targetStamp && --targets == 0) break;
+      const std::vector<Arc>& row = adj[(size_t)nd.v];
+      for (size_t i = 0; i < row.size(); i++) {
+        int to = row[i].to;
+        if (to == skip || contracted[(size_t)to]) continue;
+        int d = nd.d + row[i].w;
+        if (d < dist[(size_t)to]) {
+          if (dist[(size_t)to] == kInf) touched.push_back(to);
+          dist[(size_t)to] = d;
+          pq.push(NodeDist{d, to});
+        }
+      }
+    }
+  }
+
+  // Shortcuts needed to contract v; added to the working graph when `apply`.
+  int contract(int v, bool apply) {
+    std::vector<Arc> nb;
+    const std::vector<Arc>& row = adj[(size_t)v];
+    for (size_t i = 0; i < row.size(); i++) {
+      if (!contracted[(size_t)row[i].to]) nb.push_back(row[i]);
+    }
+    std::vector<Arc> add; // (from in `mid`, to, w)
+    for (size_t i = 0; i + 1 < nb.size(); i++) {
+      int maxW = 0;
+      for (size_t j = i + 1; j < nb.size(); j++) {
+        if (nb[j].w > maxW) maxW = nb[j].w;
+      }
+      targetStamp++;
+      for (size_t j = i + 1; j < nb.size(); j++) targetMark[(size_t)nb[j].to] = targetStamp;
+      witness(nb[i].to, v, nb[i].w + maxW, apply ? kWitnessSettleLimit : kScoreSettleLimit, (int)(nb.size() - i - 1));
+      for (size_t j = i + 1; j < nb.size(); j++) {
+        int via = nb[i].w + nb[j].w;
+        if (dist[(size_t)nb[j].to] <= via) continue;
+        add.push_back(Arc{nb[j].to, via, nb[i].to});
+      }
+    }
+    if (apply) {
+      for (size_t k = 0; k < add.size(); k++) {
+        link(add[k].mid, add[k].to, add[k].w, v);
+        link(add[k].to, add[k].mid, add[k].w, v);
+      }
+    }
+    return (int)add.size();
+  }
+
+  int priority(int v) {
+    int degree = 0;
+    const std::vector<Arc>& row = adj[(size_t)v];
+    for (size_t i = 0; i < row.size(); i++) {
+      if (!contracted[(size_t)row[i].to]) degree++;
+    }
+    return 2 * (contract(v, false) - degree) + deletedNeighbors[(size_t)v] + level[(size_t)v];
+  }
+};
+
+void putInt(std::ofstream& out, int v) {
+  unsigned int u = (unsigned int)v;
+  char b[4] = {(char)(u & 0xFF), (char)((u >> 8) & 0xFF), (char)((u >> 16) & 0xFF), (char)((u >> 24) & 0xFF)};
+  out.write(b, 4);
+}
+
+bool getInt(std::ifstream& in, int& v) {
+  unsigned char b[4];
+  if (!in.read(reinterpret_cast<char*>(b), 4)) return false;
+  v = (int)((unsigned int)b[0] | ((unsigned int)b[1] << 8) | ((unsigned int)b[2] << 16) | ((unsigned int)b[3] << 24));
+  return true;
+}
+
+void putInts(std::ofstream& out, const std::vector<int>& a) {
+  for (size_t i = 0; i < a.size(); i++) putInt(out, a[i]);
+}
+
+bool getInts(std::ifstream& in, std::vector<int>& a, int count) {
+  a.assign((size_t)count, 0);
+  for (int i = 0; i < count; i++) {
+    if (!getInt(in, a[(size_t)i])) return false;
+  }
+  return true;
+}
+
+} // namespace
+
+unsigned long long ContractionHierarchy::fingerprintOf(int n, const std::vector<int>& off, const std::vector<int>& to,
+                                                       const std::vector<int>& w) {
+  unsigned long long h = 1469598103934665603ULL;
+  auto mix = [&h](int v) {
+    unsigned int u = (unsigned int)v;
+    for (int i = 0; i < 4; i++) {
+      h ^= (u >> (8 * i)) & 0xFF;
+      h *= 1099511628211ULL;
+    }
+  };
+  mix(n);
+  for (int u = 0; u < n; u++) {
+    mix(off[(size_t)u + 1] - off[(size_t)u]);
+    for (int k = off[(size_t)u]; k < off[(size_t)u + 1]; k++) {
+      mix(to[(size_t)k]);
+      mix(w[(size_t)k]);
+    }
+  }
+  return h;
+}
+
+void ContractionHierarchy::reset() {
+  n_ = 0;
+  shortcuts_ = 0;
+  fingerprint_ = 0;
+  rank_.clear();
+  upOff_.clear();
+  upTo_.clear();
+  upW_.clear();
+  upMid_.clear();
+}
+
+void ContractionHierarchy::build(int n, const std::vector<int>& off, const std::vector<int>& to,
+                                 const std::vector<int>& w, unsigned long long fingerprint) {
+  reset();
+  if (n <= 0) return;
+
+  Builder b;
+  b.n = n;
+  b.adj.resize((size_t)n);
+  b.contracted.assign((size_t)n, false);
+  b.deletedNeighbors.assign((size_t)n, 0);
+  b.level.assign((size_t)n, 0);
+  b.dist.assign((size_t)n, kInf);
+  b.targetMark.assign((size_t)n, 0);
+  for (int u = 0; u < n; u++) {
+    for (int k = off[(size_t)u]; k < off[(size_t)u + 1]; k++) {
+      if (to[(size_t)k] != u) b.link(u, to[(size_t)k], w[(size_t)k], -1);
+    }
+  }
+
+  // Lazy updates: a popped node is re-scored and goes back if it is no longer the cheapest
+  // (re-scoring every neighbour after each contraction was 3x slower for no better order).
+  rank_.assign((size_t)n, 0);
+  dsa::MinHeap<NodeDist, Less> order;
+  for (int v = 0; v < n; v++) order.push(NodeDist{b.priority(v), v});
+  int next = 0;
+  while (!order.empty()) {
+    int v = order.popMin().v;
+    int p = b.priority(v);
+    if (!order.empty() && p > order.top().d) {
+      order.push(NodeDist{p, v});
+      continue;
+    }
+    b.contract(v, true);
+    b.contracted[(size_t)v] = true;
+    rank_[(size_t)v] = next++;
+    const std::vector<Arc>& row = b.adj[(size_t)v];
+    for (size_t i = 0; i < row.size(); i++) {
+      int x = row[i].to;
+      if (b.contracted[(size_t)x]) continue;
+      b.deletedNeighbors[(size_t)x]++;
+      if (b.level[(size_t)x] < b.level[(size_t)v] + 1) b.level[(size_t)x] = b.level[(size_t)v] + 1;
+    }
+  }
+
+  // Arcs of v are final once v is contracted (shortcuts only join uncontracted nodes).
+  upOff_.assign((size_t)n + 1, 0);
+  for (int v = 0; v < n; v++) {
+    const std::vector<Arc>& row = b.adj[(size_t)v];
+    int up = 0;
+    for (size_t i = 0; i < row.size(); i++) {
+      if (rank_[(size_t)row[i].to] > rank_[(size_t)v]) up++;
+    }
+    upOff_[(size_t)v + 1] = upOff_[(size_t)v] + up;
+  }
+  int arcCount = upOff_[(size_t)n];
+  upTo_.assign((size_t)arcCount, 0);
+  upW_.assign((size_t)arcCount, 0);
+  upMid_.assign((size_t)arcCount, -1);
+  for (int v = 0; v < n; v++) {
+    int k = upOff_[(size_t)v];
+    const std::vector<Arc>& row = b.adj[(size_t)v];
+    for (size_t i = 0; i < row.size(); i++) {
+      if (rank_[(size_t)row[i].to] <= rank_[(size_t)v]) continue;
+      upTo_[(size_t)k] = row[i].to;
+      upW_[(size_t)k] = row[i].w;
+      upMid_[(size_t)k] = row[i].mid;
+      if (row[i].mid >= 0) shortcuts_++;
+      k++;
+    }
+  }
+  n_ = n;
+  fingerprint_ = fingerprint;
+}
+
+bool ContractionHierarchy::save(const std::string& path) const {
+  if (!ready() || path.empty()) return false;
+  std::ofstream out(path.c_str(), std::ios::out | std::ios::binary | std::ios::trunc);
+  if (!out.good()) return false;
+  out.write("CCH1", 4);
+  putInt(out, n_);
+  putInt(out, arcs());
+  putInt(out, shortcuts_);
+  putInt(out, (int)(unsigned int)(fingerprint_ & 0xFFFFFFFFULL));
+  putInt(out, (int)(unsigned int)(fingerprint_ >> 32));
+  putInts(out, rank_);
+  putInts(out, upOff_);
+  putInts(out, upTo_);
+  putInts(out, upW_);
+  putInts(out, upMid_);
+  out.flush();
+  return out.good();
+}
+
+bool ContractionHierarchy::load(const std::string& path, unsigned long long expectFingerprint) {
+  reset();
+  if (path.empty()) return false;
+  std::ifstream in(path.c_str(), std::ios::in | std::ios::binary);
+  if (!in.good()) return false;
+  char magic[4];
+  if (!in.read(magic, 4) || magic[0] != 'C' || magic[1] != 'C' || magic[2] != 'H' || magic[3] != '1') return false;
+  int n, arcCount, shortcuts, lo, hi;
+  if (!getInt(in, n) || !getInt(in, arcCount) || !getInt(in, shortcuts) || !getInt(in, lo) || !getInt(in, hi)) return false;
+  unsigned long long fp = (unsigned long long)(unsigned int)lo | ((unsigned long long)(unsigned int)hi << 32);
+  if (fp != expectFingerprint || n <= 0 || arcCount < 0) return false;
+
+  ContractionHierarchy h;
+  if (!getInts(in, h.rank_, n) || !getInts(in, h.upOff_, n + 1) || !getInts(in, h.upTo_, arcCount) ||
+      !getInts(in, h.upW_, arcCount) || !getInts(in, h.upMid_, arcCount)) {
+    return false;
+  }
+  // Reject anything a query could index out of bounds with.
+  if (h.upOff_[0] != 0 || h.upOff_[(size_t)n] != arcCount) return false;
+  for (int v = 0; v < n; v++) {
+    if (h.upOff_[(size_t)v + 1] < h.upOff_[(size_t)v]) return false;
+  }
+  for (int v = 0; v < n; v++) {
+    if (h.rank_[(size_t)v] < 0 || h.rank_[(size_t)v] >= n) return false;
+  }
+  // Arcs climb (the upper end ranks above v) and a shortcut bypasses a node ranked below
+  // v, so unpacking always descends and terminates.
+  for (int v = 0; v < n; v++) {
+    for (int k = h.upOff_[(size_t)v]; k < h.upOff_[(size_t)v + 1]; k++) {
+      int to = h.upTo_[(size_t)k], mid = h.upMid_[(size_t)k];
+      if (to < 0 || to >= n || mid >= n || h.upW_[(size_t)k] < 0) return false;
+      if (h.rank_[(size_t)to] <= h.rank_[(size_t)v]) return false;
+      if (mid >= 0 && h.rank_[(size_t)mid] >= h.rank_[(size_t)v]) return false;
+    }
+  }
+
+  rank_.swap(h.rank_);
+  upOff_.swap(h.upOff_);
+  upTo_.swap(h.upTo_);
+  upW_.swap(h.upW_);
+  upMid_.swap(h.upMid_);
+  shortcuts_ = shortcuts;
+  fingerprint_ = fp;
+  n_ = n;
+  return true;
+}
+
+int ContractionHierarchy::upArc(int low, int high) const {
+  for (int k = upOff_[(size_t)low]; k < upOff_[(size_t)low + 1]; k++) {
+    if (upTo_[(size_t)k] == high) return k;
+  }
+  return -1;
+}
+
+// Appends the original nodes after `from` up to and including `to` for the arc from-to
+// that bypasses `mid`. Explicit stack: shortcut nesting can be as deep as the hierarchy.
+// Every split ranks strictly lower (load() checks it, this re-checks it) and a route has
+// at most n_ nodes, so even a corrupt hierarchy cannot cycle or grow the path without
+// bound: false means "corrupt", and the caller drops the route.
+bool ContractionHierarchy::unpack(int from, int to, int mid, std::vector<int>& out) const {
+  struct Seg { int from; int to; int mid; };
+  std::vector<Seg> stack;
+  stack.push_back(Seg{from, to, mid});
+  while (!stack.empty()) {
+    Seg s = stack.back();
+    stack.pop_back();
+    if (s.mid < 0) {
+      if ((int)out.size() >= n_) return false;
+      out.push_back(s.to);
+      continue;
+    }
+    // Both halves are arcs of the bypassed node, which ranks below either end.
+    if (rank_[(size_t)s.mid] >= rank_[(size_t)s.from] || rank_[(size_t)s.mid] >= rank_[(size_t)s.to]) return false;
+    int a = upArc(s.mid, s.from);
+    int b = upArc(s.mid, s.to);
+    if (a < 0 || b < 0) return false;
+    stack.push_back(Seg{s.mid, s.to, upMid_[(size_t)b]});
+    stack.push_back(Seg{s.from, s.mid, upMid_[(size_t)a]});
+  }
+  return true;
+}
+
+bool ContractionHierarchy::query(int s, int t, std::vector<int>& path, int& cost, std::vector<int>& settledOrder) const {
+  path.clear();
+  settledOrder.clear();
+  cost = -1;
+  if (!ready() || s < 0 || t < 0 || s >= n_ || t >= n_) return false;
+
+  // Per-thread scratch (queries run concurrently under the read gate): only the entries a
+  // query touched are reset, so a query costs what it explores, not O(n).
+  static thread_local QueryScratch sc;
+  // The scratch is shared by every hierarchy this thread queries: after a resize the old
+  // touched ids may be out of range for the new size (and the arrays are clean anyway).
+  if ((int)sc.dist[0].size() != n_) {
+    for (int side = 0; side < 2; side++) {
+      sc.dist[side].assign((size_t)n_, kInf);
+      sc.prev[side].assign((size_t)n_, -1);
+    }
+    sc.touched.clear();
+  }
+  for (size_t i = 0; i < sc.touched.size(); i++) {
+    int v = sc.touched[i];
+    for (int side = 0; side < 2; side++) {
+      sc.dist[side][(size_t)v] = kInf;
+      sc.prev[side][(size_t)v] = -1;
+    }
+  }
+  sc.touched.clear();
+  std::vector<int>* dist = sc.dist;
+  std::vector<int>* prev = sc.prev;
+  dsa::MinHeap<NodeDist, Less>* pq = sc.pq;
+  pq[0].clear();
+  pq[1].clear();
+  sc.touched.push_back(s);
+  sc.touched.push_back(t);
+  dist[0][(size_t)s] = 0;
+  dist[1][(size_t)t] = 0;
+  pq[0].push(NodeDist{0, s});
+  pq[1].push(NodeDist{0, t});
+  int best = kInf;
+  int meet = -1;
+
+  // Each side only climbs, so the sum-of-tops rule of plain bidirectional Dijkstra does not
+  // apply: a side stops once its own top cannot beat the best meeting cost.
+  for (;;) {
+    bool live0 = !pq[0].empty() && pq[0].top().d < best;
+    bool live1 = !pq[1].empty() && pq[1].top().d < best;
+    if (!live0 && !live1) break;
+    int side = !live1 || (live0 && pq[0].top().d <= pq[1].top().d) ? 0 : 1;
+    NodeDist nd = pq[side].popMin();
+    int u = nd.v;
+    std::vector<int>& d = dist[side];
+    if (nd.d > d[(size_t)u]) continue; // stale entry
+    // Stall-on-demand: a higher neighbour already reached reaches u more cheaply, so u is
+    // not on a shortest up-path and expanding it only widens the search.
+    bool stalled = false;
+    for (int k = upOff_[(size_t)u]; k < upOff_[(size_t)u + 1] && !stalled; k++) {
+      int x = upTo_[(size_t)k];
+      stalled = d[(size_t)x] != kInf && d[(size_t)x] + upW_[(size_t)k] < d[(size_t)u];
+    }
+    if (stalled) continue;
+    settledOrder.push_back(u);
+    const std::vector<int>& other = dist[1 - side];
+    if (other[(size_t)u] != kInf && d[(size_t)u] + other[(size_t)u] < best) {
+      best = d[(size_t)u] + other[(size_t)u];
+      meet = u;
+    }
+    for (int k = upOff_[(size_t)u]; k < upOff_[(size_t)u + 1]; k++) {
+      int to = upTo_[(size_t)k];
+      if (d[(size_t)u] + upW_[(size_t)k] < d[(size_t)to]) {
+        if (dist[0][(size_t)to] == kInf && dist[1][(size_t)to] == kInf) sc.touched.push_back(to);
+        d[(size_t)to] = d[(size_t)u] + upW_[(size_t)k];
+        prev[side][(size_t)to] = u;
+        pq[side].push(NodeDist{d[(size_t)to], to});
+      }
+    }
+  }
+  if (meet < 0) return false;
+
+  // s .. meet climbs the forward tree, meet .. t descends the backward tree.
+  std::vector<int> up;
+  for (int cur = meet; cur != -1; cur = prev[0][(size_t)cur]) up.push_back(cur);
+  path.push_back(s);
+  for (size_t i = up.size() - 1; i > 0; i--) {
+    int a = up[i], b = up[i - 1];
+    int k = upArc(a, b);
+    if (k < 0 || !unpack(a, b, upMid_[(size_t)k], path)) { path.clear(); return false; }
+  }
+  for (int cur = meet; prev[1][(size_t)cur] != -1; cur = prev[1][(size_t)cur]) {
+    int low = prev[1][(size_t)cur];
+    int k = upArc(low, cur);
+    if (k < 0 || !unpack(cur, low, upMid_[(size_t)k], path)) { path.clear(); return false; }
+  }
+  cost = best;
+  return true;
+}
@@ -0,0 +1,56 @@
+#pragma once
+
+#include <string>
+#include <vector>
+
+// Contraction hierarchy (CH) over an undirected weighted graph given as CSR rows.
+//
+// Preprocessing contracts nodes one by one (cheapest first: shortcuts added - edges
+// removed + contracted neighbours). Contracting v adds a shortcut u-x of weight
+// w(u,v) + w(v,x) unless a witness path u..x avoiding v is no longer. The node order is
+// the rank; every edge and shortcut is stored once, on its lower-ranked end ("upward").
+//
+// A query runs Dijkstra upward from s and upward from t and meets at the top; the
+// explored area is a few hundred nodes even on large maps. Shortcuts remember the node
+// they bypass, so a route unpacks back to original edges.
+//
+// File layout (all ints 32-bit little-endian, fingerprint as two ints, low half first):
+//   "CCH1", n, arcs, shortcuts, fingerprint, rank[n], upOff[n + 1], upTo[arcs],
+//   upW[arcs], upMid[arcs]
+class ContractionHierarchy {
+ public:
+  // Rows u are [off[u], off[u + 1]) of to/w, both directions present (CampusGraph CSR).
+  // Parallel edges keep the cheapest one; self loops are dropped.
+  void build(int n, const std::vector<int>& off, const std::vector<int>& to, const std::vector<int>& w,
+             unsigned long long fingerprint);
+  bool save(const std::string& path) const;
+  // False (and stays empty) when the file is missing, corrupt or built for another graph.
+  bool load(const std::string& path, unsigned long long expectFingerprint);
+  void reset();
+
+  bool ready() const { return n_ > 0; }
+  int nodes() const { return n_; }
+  int shortcuts() const { return shortcuts_; }
+  int arcs() const { return (int)upTo_.size(); }
+
+  // Shortest s..t route as original node indices (s first). settledOrder receives the
+  // nodes settled by both upward searches. False when t is unreachable.
+  bool query(int s, int t, std::vector<int>& path, int& cost, std::vector<int>& settledOrder) const;
+
+  // FNV-1a over n and the CSR rows: the same structure gives the same hierarchy.
+  static unsigned long long fingerprintOf(int n, const std::vector<int>& off, const std::vector<int>& to,
+                                          const std::vector<int>& w);
+
+ private:
+  int n_ = 0;
+  int shortcuts_ = 0;
+  unsigned long long fingerprint_ = 0;
+  std::vector<int> rank_;
+  std::vector<int> upOff_;
+  std::vector<int> upTo_;
+  std::vector<int> upW_;
+  std::vector<int> upMid_; // bypassed node for shortcuts, -1 for original edges
+
+  int upArc(int low, int high) const; // arc index low -> high (low has the lower rank)
+  bool unpack(int from, int to, int mid, std::vector<int>& out) const; // false = corrupt
+};
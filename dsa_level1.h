@@ -7,6 +7,118 @@
 
 namespace dsa {
 
+// ---------------- NodePool (slab allocator) ----------------
+
+// Counters for one pool (or a sum of pools): `slabs` heap blocks served `requests` nodes.
+struct PoolStats {
+  long long requests = 0; // alloc() calls
+  long long reused = 0;   // served from the free list or from a slab kept by reset()
+  long long slabs = 0;    // heap blocks held
+  long long capacity = 0; // node slots across the slabs held
+  long long live = 0;     // nodes currently handed out
+
+  void add(const PoolStats& o) {
+    requests += o.requests;
+    reused += o.reused;
+    slabs += o.slabs;
+    capacity += o.capacity;
+    live += o.live;
+  }
+};
+
+// Hands out nodes from a few slabs (4, 8, 16 ... up to 4096 slots) instead of one heap block
+// per node, so neighbours in a list or tree sit close together. release() puts a node on a
+// free list; reset() destroys every node (nothing to visit for trivially destructible ones,
+// so O(slabs)) and keeps the slab blocks for the next build. reset(keepSlots) also hands
+// back the slabs beyond the first keepSlots slots, so a pool that once held a big roster
+// shrinks to the next build instead of keeping its peak. Slabs never reallocate, so node
+// addresses stay valid until reset() or destruction.
+template <typename Node>
+class NodePool {
+  static const size_t kFirstSlab = 4;
+  static const size_t kMaxSlab = 4096;
+
+  std::vector<std::vector<Node>> slabs_; // each reserved to its full size when created
+  std::vector<Node*> free_;
+  size_t slab_ = 0; // slab handing out slots
+  size_t kept_ = 0; // slabs that came through the last reset(): their slots count as reused
+  PoolStats stats_;
+
+ public:
+  NodePool() = default;
+  NodePool(const NodePool&) = delete;
+  NodePool& operator=(const NodePool&) = delete;
+  // Moving the slabs keeps their buffers, so nodes handed out stay where they are.
+  NodePool(NodePool&& o) noexcept { *this = std::move(o); }
+  NodePool& operator=(NodePool&& o) noexcept {
+    if (this != &o) {
+      slabs_.swap(o.slabs_);
+      free_.swap(o.free_);
+      slab_ = o.slab_;
+      kept_ = o.kept_;
+      stats_ = o.stats_;
+      o.slabs_.clear();
+      o.free_.clear();
+      o.slab_ = o.kept_ = 0;
+      o.stats_ = PoolStats();
+    }
+    return *this;
+  }
+
+  Node* alloc(Node&& n) {
+    stats_.requests++;
+    stats_.live++;
+    if (!free_.empty()) {
+      Node* p = free_.back();
+      free_.pop_back();
+      *p = std::move(n);
+      stats_.reused++;
+      return p;
+    }
+    while (slab_ < slabs_.size() && slabs_[slab_].size() == slabs_[slab_].capacity()) slab_++;
+    if (slab_ == slabs_.size()) {
+      size_t cap = slabs_.empty() ? kFirstSlab : slabs_.back().capacity() * 2;
+      if (cap > kMaxSlab) cap = kMaxSlab;
+      slabs_.emplace_back();
+      slabs_.back().reserve(cap);
+      stats_.slabs++;
+      stats_.capacity += (long long)cap;
+    }
+    if (slab_ < kept_) stats_.reused++;
+    std::vector<Node>& s = slabs_[slab_];
+    s.push_back(std::move(n)); // within the reserved size: never moves the slab
+    return &s.back();
+  }
+
+  void release(Node* p) {
+    free_.push_back(p);
+    stats_.live--;
+  }
+
+  // Destroys every node, keeps every slab.
+  void reset() { reset((size_t)-1); }
+
+  // Destroys every node and keeps only the leading slabs needed for keepSlots nodes (at
+  // most one slab more); the rest are freed. The slabs still held after the next build are
+  // those that build filled, rounded up to a slab.
+  void reset(size_t keepSlots) {
+    size_t keep = 0, slots = 0;
+    while (keep < slabs_.size() && slots < keepSlots) slots += slabs_[keep++].capacity();
+    for (size_t i = keep; i < slabs_.size(); i++) {
+      stats_.slabs--;
+      stats_.capacity -= (long long)slabs_[i].capacity();
+    }
+    slabs_.resize(keep);
+    for (size_t i = 0; i < keep; i++) slabs_[i].clear(); // the block stays reserved
+    free_.clear();
+    slab_ = 0;
+    kept_ = keep;
+    stats_.live = 0;
+  }
+
+  const PoolStats& stats() const { return stats_; }
+};
+
 // ---------------- LinkedList ----------------
 
 template <typename T>
@@ -20,22 +132,23 @@ class LinkedList {
   Node* head_ = nullptr;
   Node* tail_ = nullptr;
   size_t size_ = 0;
+  NodePool<Node> pool_; // a list's nodes share a few slabs
 
  public:
   LinkedList() = default;
   LinkedList(const LinkedList&) = delete;
   LinkedList& operator=(const LinkedList&) = delete;
-  LinkedList(LinkedList&& o) noexcept : head_(o.head_), tail_(o.tail_), size_(o.size_) {
+  LinkedList(LinkedList&& o) noexcept : head_(o.head_), tail_(o.tail_), size_(o.size_), pool_(std::move(o.pool_)) {
     o.head_ = nullptr;
     o.tail_ = nullptr;
     o.size_ = 0;
   }
   LinkedList& operator=(LinkedList&& o) noexcept {
     if (this != &o) {
-      clear();
       head_ = o.head_;
       tail_ = o.tail_;
       size_ = o.size_;
+      pool_ = std::move(o.pool_);
       o.head_ = nullptr;
       o.tail_ = nullptr;
       o.size_ = 0;
@@ -43,10 +156,8 @@ class LinkedList {
     return *this;
   }
 
-  ~LinkedList() { clear(); }
-
   void pushBack(const T& v) {
-    Node* n = new Node(v, nullptr);
+    Node* n = pool_.alloc(Node(v, nullptr));
     if (!tail_) {
       head_ = tail_ = n;
     } else {
@@ -56,18 +167,16 @@ class LinkedList {
     size_++;
   }
 
+  // The pool drops the nodes in one pass over its slabs instead of freeing them one by one
+  // (O(slabs) when T is trivially destructible, like the navigator's edges).
   void clear() {
-    Node* cur = head_;
-    while (cur) {
-      Node* next = cur->next;
-      delete cur;
-      cur = next;
-    }
+    pool_.reset();
     head_ = tail_ = nullptr;
     size_ = 0;
   }
 
   size_t size() const { return size_; }
+  const PoolStats& poolStats() const { return pool_.stats(); }
 
   struct Iterator {
     Node* p;
@@ -131,6 +240,11 @@ class HashMap {
     if (table_.empty()) rehash(16);
     // keep load factor under ~0.65 (occupied), rebuild on many tombstones
     if (occupied_ * 100 >= table_.size() * 65) rehash(table_.size() * 2);
+  }
+
+  // Shrink only after an erase: checking it in put() would fire inside rehash() itself
+  // (used_ restarts at 0 there) and recurse.
+  void shrinkIfSparse() {
     if (used_ * 100 <= table_.size() * 20 && table_.size() > 32) rehash(table_.size() / 2);
   }
 
@@ -208,6 +322,7 @@ class HashMap {
         s.state = Deleted;
         s.key.clear();
         used_--;
+        shrinkIfSparse();
         return true;
       }
       idx = (idx + 1) % cap;
@@ -266,3 +381,12 @@ class Queue {
 };
 
 } // namespace dsa
+
+// Tiny spin lock for the short critical sections that concurrent readers (native read
+// gate) share inside the graph and the student store. GCC __atomic builtins; <mutex> is
+// outside the header rule.
+struct SpinLock {
+  int flag = 0;
+  void lock() { while (__atomic_exchange_n(&flag, 1, __ATOMIC_ACQUIRE)) {} }
+  void unlock() { __atomic_store_n(&flag, 0, __ATOMIC_RELEASE); }
+};
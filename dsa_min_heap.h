@@ -46,6 +46,8 @@ class MinHeap {
 
   bool empty() const { return a_.empty(); }
   size_t size() const { return a_.size(); }
+  const T& top() const { return a_.front(); } // Precondition: not empty.
+  void clear() { a_.clear(); }                 // keeps capacity for reuse
 
   void push(const T& v) {
     a_.push_back(v);
@@ -62,4 +64,151 @@ class MinHeap {
   }
 };
 
+// Indexed 4-ary min-heap over ids [0, capacity). Each id is in the heap at most once and
+// decreaseKey moves it up in place, so the heap never holds more than `capacity` entries
+// (no stale duplicates to skip). Four children per node make the tree half as deep as a
+// binary heap and keep siblings on one cache line.
+template <typename Key, typename Less>
+class IndexedHeap {
+  static const size_t kArity = 4;
+
+  std::vector<int> heap_; // ids in heap order
+  std::vector<int> pos_;  // id -> slot in heap_, -1 = not queued
+  std::vector<Key> key_;  // id -> key (valid while queued)
+  Less less_;
+
+  void place(size_t i, int id) {
+    heap_[i] = id;
+    pos_[(size_t)id] = (int)i;
+  }
+
+  void siftUp(size_t i) {
+    int id = heap_[i];
+    while (i > 0) {
+      size_t p = (i - 1) / kArity;
+      if (!less_(key_[(size_t)id], key_[(size_t)heap_[p]])) break;
+      place(i, heap_[p]);
+      i = p;
+    }
+    place(i, id);
+  }
+
+  void siftDown(size_t i) {
+    size_t n = heap_.size();
+    int id = heap_[i];
+    for (;;) {
+      size_t first = i * kArity + 1;
+      if (first >= n) break;
+      size_t last = first + kArity < n ? first + kArity : n;
+      size_t best = first;
+      for (size_t c = first + 1; c < last; c++) {
+        if (less_(key_[(size_t)heap_[c]], key_[(size_t)heap_[best]])) best = c;
+      }
+      if (!less_(key_[(size_t)heap_[best]], key_[(size_t)id])) break;
+      place(i, heap_[best]);
+      i = best;
+    }
+    place(i, id);
+  }
+
+ public:
+  explicit IndexedHeap(int capacity) : pos_((size_t)(capacity > 0 ? capacity : 0), -1), key_(pos_.size()) {}
+
+  bool empty() const { return heap_.empty(); }
+  size_t size() const { return heap_.size(); }
+  bool contains(int id) const { return pos_[(size_t)id] >= 0; }
+  int top() const { return heap_.front(); } // Precondition: not empty.
+  const Key& keyOf(int id) const { return key_[(size_t)id]; }
+
+  void push(int id, const Key& k) {
+    // Precondition: !contains(id).
+    key_[(size_t)id] = k;
+    heap_.push_back(id);
+    siftUp(heap_.size() - 1);
+  }
+
+  void decreaseKey(int id, const Key& k) {
+    // Precondition: contains(id) and k is not greater than the current key.
+    key_[(size_t)id] = k;
+    siftUp((size_t)pos_[(size_t)id]);
+  }
+
+  // Dijkstra's relaxation: queue the id or lower its key.
+  void pushOrDecrease(int id, const Key& k) {
+    if (contains(id)) decreaseKey(id, k); else push(id, k);
+  }
+
+  int popMin() {
+    // Precondition: not empty (callers ensure this).
+    int out = heap_.front();
+    pos_[(size_t)out] = -1;
+    int last = heap_.back();
+    heap_.pop_back();
+    if (!heap_.empty()) {
+      heap_.front() = last;
+      siftDown(0);
+    }
+    return out;
+  }
+};
+
+// Monotone bucket queue (Dial's algorithm) for small integer keys.
+// Every pushed key must lie in [last popped key, last popped key + maxSpan] (before the
+// first pop: [0, maxSpan]), which holds for Dijkstra when maxSpan >= the largest edge
+// weight. Buckets form a ring of maxSpan + 1 FIFO lists threaded through one item array,
+// so push is O(1) and popMin only walks forward over empty buckets (total walk <= largest
+// key).
+template <typename T>
+class BucketQueue {
+  struct Item {
+    int key;
+    T value;
+    int next;
+  };
+
+  std::vector<Item> items_; // append-only until clear()
+  std::vector<int> head_;   // per bucket, -1 = empty
+  std::vector<int> tail_;
+  int cur_ = 0;             // last popped key (0 before the first pop)
+  size_t size_ = 0;
+
+ public:
+  explicit BucketQueue(int maxSpan)
+      : head_((size_t)(maxSpan > 0 ? maxSpan : 0) + 1, -1), tail_((size_t)(maxSpan > 0 ? maxSpan : 0) + 1, -1) {}
+
+  bool empty() const { return size_ == 0; }
+  size_t size() const { return size_; }
+
+  void push(int key, const T& v) {
+    size_t b = (size_t)key % head_.size();
+    int i = (int)items_.size();
+    items_.push_back(Item{key, v, -1});
+    if (tail_[b] >= 0) items_[(size_t)tail_[b]].next = i; else head_[b] = i;
+    tail_[b] = i;
+    size_++;
+  }
+
+  T popMin(int& key) {
+    // Precondition: not empty (callers ensure this).
+    size_t b = (size_t)cur_ % head_.size();
+    while (head_[b] < 0) {
+      cur_++;
+      b = (size_t)cur_ % head_.size();
+    }
+    const Item& it = items_[(size_t)head_[b]];
+    head_[b] = it.next;
+    if (head_[b] < 0) tail_[b] = -1;
+    size_--;
+    key = it.key;
+    return it.value;
+  }
+
+  void clear() {
+    items_.clear();
+    for (size_t i = 0; i < head_.size(); i++) head_[i] = tail_[i] = -1;
+    cur_ = 0;
+    size_ = 0;
+  }
+};
+
 } // namespace dsa
@@ -1,8 +1,279 @@
 #include "graph.h"
+
+static const int kInf = 1000000000;
+
+// ---------------- RouteCache ----------------
+
+RouteCache::RouteCache(int capacity) : slots_((size_t)(capacity > 0 ? capacity : 1)) {}
+
+std::string RouteCache::keyOf(int s, int t, int algo) {
+  return std::to_string(s) + ',' + std::to_string(t) + ',' + std::to_string(algo);
+}
+
+void RouteCache::unlink(int i) {
+  Entry& e = slots_[(size_t)i];
+  if (e.prev >= 0) slots_[(size_t)e.prev].next = e.next; else head_ = e.next;
+  if (e.next >= 0) slots_[(size_t)e.next].prev = e.prev; else tail_ = e.prev;
+  e.prev = e.next = -1;
+}
+
+void RouteCache::pushFront(int i) {
+  Entry& e = slots_[(size_t)i];
+  e.prev = -1;
+  e.next = head_;
+  if (head_ >= 0) slots_[(size_t)head_].prev = i;
+  head_ = i;
+  if (tail_ < 0) tail_ = i;
+}
+
+bool RouteCache::get(int s, int t, int algo, PathResult& out) {
+  std::string key = keyOf(s, t, algo);
+  lock_.lock();
+  int i;
+  bool hit = index_.get(key, i);
+  if (hit) {
+    hits_++;
+    unlink(i);
+    pushFront(i);
+    out = slots_[(size_t)i].value;
+  } else {
+    misses_++;
+  }
+  lock_.unlock();
+  return hit;
+}
+
+void RouteCache::put(int s, int t, int algo, const PathResult& r, long long version) {
+  std::string key = keyOf(s, t, algo);
+  lock_.lock();
+  if (version != version_) { lock_.unlock(); return; } // computed on a graph that has since changed
+  int i;
+  if (index_.get(key, i)) {
+    // Two readers missed on the same key; keep one copy.
+    unlink(i);
+  } else if (size_ < (int)slots_.size()) {
+    i = size_++;
+  } else {
+    i = tail_;
+    unlink(i);
+    index_.erase(slots_[(size_t)i].key);
+    evictions_++;
+  }
+  slots_[(size_t)i].key = key;
+  slots_[(size_t)i].value = r;
+  index_.put(key, i);
+  pushFront(i);
+  lock_.unlock();
+}
+
+void RouteCache::clear(long long version) {
+  lock_.lock();
+  for (int i = 0; i < size_; i++) {
+    slots_[(size_t)i].key.clear();
+    slots_[(size_t)i].value = PathResult();
+    slots_[(size_t)i].prev = slots_[(size_t)i].next = -1;
+  }
+  index_ = dsa::HashMap<int>();
+  head_ = tail_ = -1;
+  size_ = 0;
+  version_ = version;
+  lock_.unlock();
+}
+
+RouteCache::Stats RouteCache::stats() const {
+  lock_.lock();
+  Stats st;
+  st.hits = hits_;
+  st.misses = misses_;
+  st.evictions = evictions_;
+  st.size = size_;
+  st.capacity = (int)slots_.size();
+  st.version = version_;
+  lock_.unlock();
+  return st;
+}
+
+// ---------------- CampusGraph ----------------
+
+static long long gSeeds = 0;
+static long long gCopies = 0;
+
 CampusGraph::CampusGraph() {
   seedDefault();
 }
 
+// The holder keeps one reference for the life of the process; the function-local static is
+// initialised exactly once even when the first two requests race.
+static GraphRef& defaultHolder() {
+  static GraphRef holder(new CampusGraph());
+  return holder;
+}
+
+const CampusGraph& CampusGraph::defaultGraph() {
+  return *defaultHolder();
+}
+
+GraphRef CampusGraph::sharedDefault() {
+  return defaultHolder();
+}
+
+CampusGraph::BuildStats CampusGraph::buildStats() {
+  BuildStats st;
+  st.seeds = __atomic_load_n(&gSeeds, __ATOMIC_RELAXED);
+  st.copies = __atomic_load_n(&gCopies, __ATOMIC_RELAXED);
+  return st;
+}
+
+CampusGraph* CampusGraph::clone() const {
+  __atomic_add_fetch(&gCopies, 1, __ATOMIC_RELAXED);
+  CampusGraph* g = new CampusGraph(NoSeed{});
+  g->indexOf_ = indexOf_;
+  g->nameOf_ = nameOf_;
+  g->coordOf_ = coordOf_;
+  g->adjW_.resize(adjW_.size());
+  for (size_t u = 0; u < adjW_.size(); u++) {
+    for (auto it = adjW_[u].begin(); it != adjW_[u].end(); ++it) g->adjW_[u].pushBack(*it);
+  }
+  g->listTraversal_ = listTraversal_;
+  g->queueMode_ = queueMode_;
+  g->version_ = version_;
+  g->cache_.clear(version_);
+  g->freeze();
+  return g;
+}
+
+// ---------------- GraphRef ----------------
+
+GraphRef::GraphRef(CampusGraph* owned) : box_(new Box{owned, 1}) {}
+
+GraphRef::GraphRef(const GraphRef& o) : box_(o.box_) {
+  if (box_) __atomic_add_fetch(&box_->refs, 1, __ATOMIC_RELAXED);
+}
+
+GraphRef& GraphRef::operator=(const GraphRef& o) {
+  if (box_ != o.box_) {
+    if (o.box_) __atomic_add_fetch(&o.box_->refs, 1, __ATOMIC_RELAXED);
+    release();
+    box_ = o.box_;
+  }
+  return *this;
+}
+
+GraphRef::~GraphRef() {
+  release();
+}
+
+void GraphRef::release() {
+  if (box_ && __atomic_sub_fetch(&box_->refs, 1, __ATOMIC_ACQ_REL) == 0) {
+    delete box_->graph;
+    delete box_;
+  }
+  box_ = nullptr;
+}
+
+CampusGraph& GraphRef::edit() {
+  // A racing release elsewhere can only make the count drop, so a stale "shared" answer
+  // costs one needless copy, never a write into a graph another holder reads.
+  if (useCount() > 1) {
+    GraphRef own(box_->graph->clone());
+    *this = own;
+  }
+  return *box_->graph;
+}
+
+int GraphRef::useCount() const {
+  return box_ ? __atomic_load_n(&box_->refs, __ATOMIC_ACQUIRE) : 0;
+}
+
+void CampusGraph::bumpVersion() {
+  version_++;
+  cache_.clear(version_);
+  invalidateCsr();
+  ch_.reset(); // shortcuts describe the old graph
+}
+
+// Readers may race to the first build after an edit; the lock makes it happen once.
+const CampusGraph::Csr& CampusGraph::csr() const {
+  if (csrReady()) return csr_;
+  csrLock_.lock();
+  if (!csrReady()) {
+    buildCsr();
+    __atomic_store_n(&csrReady_, 1, __ATOMIC_RELEASE);
+  }
+  csrLock_.unlock();
+  return csr_;
+}
+
+void CampusGraph::buildCsr() const {
+  int n = (int)adjW_.size();
+  Csr& c = csr_;
+  c.off.assign((size_t)n + 1, 0);
+  for (int u = 0; u < n; u++) c.off[(size_t)u + 1] = c.off[(size_t)u] + (int)adjW_[(size_t)u].size();
+  size_t m = (size_t)c.off[(size_t)n];
+  c.to.resize(m);
+  c.w.resize(m);
+  c.sortedTo.resize(m);
+  c.sortedW.resize(m);
+
+  c.maxWeight = 0;
+  std::vector<int> tmpTo, tmpW;
+  for (int u = 0; u < n; u++) {
+    int k = c.off[(size_t)u];
+    for (auto it = adjW_[(size_t)u].begin(); it != adjW_[(size_t)u].end(); ++it, k++) {
+      c.to[(size_t)k] = (*it).to;
+      c.w[(size_t)k] = (*it).w;
+      if ((*it).w > c.maxWeight) c.maxWeight = (*it).w;
+    }
+
+    // Stable bottom-up merge sort of the row by `to`: with parallel edges the first one
+    // inserted stays first, which is the edge the list scan used to return.
+    int lo = c.off[(size_t)u], len = c.off[(size_t)u + 1] - lo;
+    int* st = c.sortedTo.data() + lo;
+    int* sw = c.sortedW.data() + lo;
+    for (int i = 0; i < len; i++) {
+      st[i] = c.to[(size_t)(lo + i)];
+      sw[i] = c.w[(size_t)(lo + i)];
+    }
+    if (len < 2) continue;
+    tmpTo.resize((size_t)len);
+    tmpW.resize((size_t)len);
+    for (int width = 1; width < len; width *= 2) {
+      for (int i = 0; i < len; i += 2 * width) {
+        int mid = i + width < len ? i + width : len;
+        int hi = i + 2 * width < len ? i + 2 * width : len;
+        int a = i, b = mid, o = i;
+        while (a < mid && b < hi) {
+          if (st[b] < st[a]) { tmpTo[(size_t)o] = st[b]; tmpW[(size_t)o++] = sw[b++]; }
+          else { tmpTo[(size_t)o] = st[a]; tmpW[(size_t)o++] = sw[a++]; }
+        }
+        while (a < mid) { tmpTo[(size_t)o] = st[a]; tmpW[(size_t)o++] = sw[a++]; }
+        while (b < hi) { tmpTo[(size_t)o] = st[b]; tmpW[(size_t)o++] = sw[b++]; }
+      }
+      for (int i = 0; i < len; i++) {
+        st[i] = tmpTo[(size_t)i];
+        sw[i] = tmpW[(size_t)i];
+      }
+    }
+  }
+
+  c.heuristicScale = 0;
+  bool allKnown = n > 0;
+  for (int u = 0; u < n && allKnown; u++) allKnown = coordOf_[(size_t)u].known;
+  if (allKnown && m > 0) {
+    double scale = -1;
+    for (int u = 0; u < n; u++) {
+      for (int k = c.off[(size_t)u]; k < c.off[(size_t)u + 1]; k++) {
+        double len = euclid(u, c.to[(size_t)k]);
+        if (len <= 0) continue; // coincident endpoints constrain nothing
+        double r = c.w[(size_t)k] / len;
+        if (scale < 0 || r < scale) scale = r;
+      }
+    }
+    // Shave a hair off so rounding never makes the estimate inadmissible.
+    if (scale > 0) c.heuristicScale = scale * (1.0 - 1e-9);
+  }
+}
+
 bool CampusGraph::resolve(const std::string& name, int& idx) const {
   return indexOf_.get(name, idx);
 }
@@ -10,6 +281,18 @@ bool CampusGraph::resolve(const std::string& name, int& idx) const {
 int CampusGraph::edgeWeight(int fromIdx, int toIdx) const {
   if (fromIdx < 0 || toIdx < 0) return -1;
   if (fromIdx >= (int)adjW_.size() || toIdx >= (int)adjW_.size()) return -1;
+  if (!listTraversal_ && csrReady()) {
+    // lower_bound over the sorted row: first (oldest) edge to toIdx
+    const int* st = csr_.sortedTo.data();
+    int lo = csr_.off[(size_t)fromIdx], hi = csr_.off[(size_t)fromIdx + 1];
+    while (lo < hi) {
+      int mid = lo + (hi - lo) / 2;
+      if (st[mid] < toIdx) lo = mid + 1; else hi = mid;
+    }
+    if (lo < csr_.off[(size_t)fromIdx + 1] && st[lo] == toIdx) return csr_.sortedW[(size_t)lo];
+    return -1;
+  }
+  // Mid-edit (seedDefault / bulk loads): the CSR is stale, scan the list.
   for (auto it = adjW_[fromIdx].begin(); it != adjW_[fromIdx].end(); ++it) {
     const EdgeW& e = *it;
     if (e.to == toIdx) return e.w;
@@ -23,31 +306,55 @@ bool CampusGraph::addLocation(const std::string& name) {
   int idx = static_cast<int>(nameOf_.size());
   nameOf_.push_back(name);
   adjW_.emplace_back();
+  coordOf_.emplace_back();
   indexOf_.put(name, idx);
+  bumpVersion();
+  return true;
+}
+
+bool CampusGraph::addLocation(const std::string& name, double x, double y) {
+  if (!addLocation(name)) return false;
+  Coord& c = coordOf_.back();
+  c.x = x;
+  c.y = y;
+  c.known = true;
   return true;
 }
 
+double CampusGraph::euclid(int a, int b) const {
+  double dx = coordOf_[(size_t)a].x - coordOf_[(size_t)b].x;
+  double dy = coordOf_[(size_t)a].y - coordOf_[(size_t)b].y;
+  return __builtin_sqrt(dx * dx + dy * dy); // <cmath> is outside the header rule
+}
+
 bool CampusGraph::addEdge(const std::string& a, const std::string& b, int w) {
   if (w <= 0) return false;
   int ia, ib;
   if (!resolve(a, ia) || !resolve(b, ib)) return false;
   adjW_[ia].pushBack(EdgeW{ib, w});
   adjW_[ib].pushBack(EdgeW{ia, w});
+  bumpVersion();
+  markDivergenceForEdge(ia, ib, w);
   return true;
 }
 
 void CampusGraph::seedDefault() {
   //In seedDefault, I created a case where the path with the fewest stops (BFS) is actually much longer
   // in distance than a path with more stops (Dijkstra). This demonstrates that BFS is unweighted, while Dijkstra is weighted.
+  __atomic_add_fetch(&gSeeds, 1, __ATOMIC_RELAXED);
   nameOf_.clear();
   adjW_.clear();
+  coordOf_.clear();
   indexOf_ = dsa::HashMap<int>();
+  bumpVersion();
 
-  // Default campus map (can be extended from GUI later)
-  const char* nodes[] = {
-      "Gate", "Admin", "Library", "Ground", "Cafeteria",
-      "Block-A", "Block-B", "Lab", "Gym", "Dorms", "Hostel"};
-  for (auto n : nodes) addLocation(n);
+  // Default campus map (can be extended from GUI later). Coordinates are percent of the
+  // map, matching GraphView's layout.
+  struct SeedNode { const char* name; double x; double y; };
+  const SeedNode nodes[] = {
+      {"Gate", 14, 10}, {"Admin", 34, 22}, {"Library", 84, 16}, {"Ground", 30, 56}, {"Cafeteria", 70, 46},
+      {"Block-A", 56, 30}, {"Block-B", 50, 44}, {"Lab", 62, 62}, {"Gym", 52, 72}, {"Dorms", 66, 80}, {"Hostel", 78, 86}};
+  for (const auto& n : nodes) addLocation(n.name, n.x, n.y);
 
   // ==========================================================
   // NON-NEGOTIABLE DEMO CASE (must differ) on the SAME graph:
@@ -102,18 +409,95 @@ void CampusGraph::seedDefault() {
       addEdge(nameOf_[(size_t)i], nameOf_[(size_t)j], 50);
     }
   }
+
+  freeze();
 }
 
 std::vector<std::string> CampusGraph::locations() const {
   return nameOf_;
 }
 
-PathResult CampusGraph::bfsShortestPath(const std::string& src, const std::string& dst) {
-  PathResult res;
-  res.algorithm = "BFS";
+dsa::PoolStats CampusGraph::edgePoolStats() const {
+  dsa::PoolStats sum;
+  for (size_t i = 0; i < adjW_.size(); i++) sum.add(adjW_[i].poolStats());
+  return sum;
+}
+
+int CampusGraph::algoFromName(const std::string& name) {
+  if (name == "BFS") return kRouteBfs;
+  if (name == "AStar" || name == "A*") return kRouteAStar;
+  if (name == "BiDijkstra") return kRouteBiDijkstra;
+  return kRouteDijkstra;
+}
+
+PathResult CampusGraph::bfsShortestPath(const std::string& src, const std::string& dst) const {
+  return shortestPath(src, dst, kRouteBfs);
+}
 
+PathResult CampusGraph::dijkstraShortestPath(const std::string& src, const std::string& dst) const {
+  return shortestPath(src, dst, kRouteDijkstra);
+}
+
+PathResult CampusGraph::shortestPath(const std::string& src, const std::string& dst, int algo) const {
   int s, t;
-  if (!resolve(src, s) || !resolve(dst, t)) return res;
+  if (!resolve(src, s) || !resolve(dst, t)) s = t = -1;
+  PathResult res = shortestPath(s, t, algo);
+  nameResult(res);
+  return res;
+}
+
+PathResult CampusGraph::shortestPath(int s, int t, int algo) const {
+  int n = (int)nameOf_.size();
+  PathResult res;
+  if (s < 0 || t < 0 || s >= n || t >= n) {
+    res.algorithm = algo == kRouteBfs ? "BFS" : algo == kRouteAStar ? "AStar" : algo == kRouteBiDijkstra ? "BiDijkstra" : "Dijkstra";
+    return res;
+  }
+  if (cache_.get(s, t, algo, res)) return res;
+  long long v = version_;
+  res = search(s, t, algo);
+  cache_.put(s, t, algo, res, v);
+  return res;
+}
+
+void CampusGraph::nameResult(PathResult& res) const {
+  res.path.resize(res.nodes.size());
+  for (size_t i = 0; i < res.nodes.size(); i++) res.path[i] = nameOf_[(size_t)res.nodes[i]];
+  res.visitedOrder.resize(res.visitedIds.size());
+  for (size_t i = 0; i < res.visitedIds.size(); i++) res.visitedOrder[i] = nameOf_[(size_t)res.visitedIds[i]];
+}
+
+PathResult CampusGraph::search(int s, int t, int algo) const {
+  PathResult res;
+  if (algo == kRouteBfs) res = bfsSearch(s, t);
+  else if (algo == kRouteAStar) res = astarSearch(s, t);
+  else if (algo == kRouteBiDijkstra) res = biDijkstraSearch(s, t);
+  else if (ch_.ready()) res = hierarchySearch(s, t);
+  else res = dijkstraSearch(s, t);
+
+  // Edge weights along the path travel with the (cached) result, so callers never look
+  // them up again. BFS ignores weights while searching; its cost is their sum.
+  int cost = fillWeights(res);
+  if (algo == kRouteBfs && !res.nodes.empty()) res.cost = cost;
+  return res;
+}
+
+int CampusGraph::fillWeights(PathResult& res) const {
+  res.edgeWeights.clear();
+  int cost = 0;
+  for (size_t i = 0; i + 1 < res.nodes.size(); i++) {
+    int w = edgeWeight(res.nodes[i], res.nodes[i + 1]);
+    res.edgeWeights.push_back(w < 0 ? 0 : w);
+    if (w < 0 || cost < 0) cost = -1;
+    else cost += w;
+  }
+  return cost;
+}
+
+PathResult CampusGraph::bfsSearch(int s, int t) const {
+  PathResult res;
+  res.algorithm = "BFS";
+  const Csr& c = csr();
 
   int n = static_cast<int>(nameOf_.size());
   std::vector<int> prev(n, -1);
@@ -129,130 +513,598 @@ PathResult CampusGraph::bfsShortestPath(const std::string& src, const std::strin
 
   while (!q.empty()) {
     int u = q.pop();
-    res.visitedOrder.push_back(nameOf_[u]);
+    res.visitedIds.push_back(u);
+    res.settled++;
     if (u == t) break;
-    for (auto it = adjW_[u].begin(); it != adjW_[u].end(); ++it) {
-      const EdgeW& e = *it;
-      if (!vis[e.to]) {
-        vis[e.to] = true;
-        prev[e.to] = u;
-        dist[e.to] = dist[u] + 1; // unweighted hop count
-        q.push(e.to);
+    forEachEdge(c, u, [&](int to, int) {
+      if (!vis[to]) {
+        vis[to] = true;
+        prev[to] = u;
+        dist[to] = dist[u] + 1; // unweighted hop count
+        q.push(to);
       }
-    }
+    });
   }
 
   if (!vis[t]) return res;
 
-  std::vector<std::string> path;
-  for (int cur = t; cur != -1; cur = prev[cur]) path.push_back(nameOf_[cur]);
-  // manual reverse
-  for (size_t i = 0, j = path.size() ? path.size() - 1 : 0; i < j; i++, j--) {
-    std::string tmp = path[i];
-    path[i] = path[j];
-    path[j] = tmp;
+  fillPath(res, prev, t);
+  res.distance = res.hops; // compatibility
+  // cost (the weighted length of this path, may be larger than Dijkstra's) is set by search()
+  return res;
+}
+
+template <typename Settle, typename Relax>
+void CampusGraph::dijkstraRun(const Csr& c, int s, int* dist, Settle&& onSettle, Relax&& onRelax) const {
+  int n = static_cast<int>(nameOf_.size());
+  for (int i = 0; i < n; i++) dist[i] = kInf;
+  dist[s] = 0;
+
+  if (useBuckets(c)) {
+    // Dial: weights <= maxWeight keep every live key within maxWeight of the minimum.
+    // Lazy duplicates (an O(1) append each); an entry is stale once dist[u] dropped below it.
+    dsa::BucketQueue<int> q(c.maxWeight);
+    q.push(0, s);
+    while (!q.empty()) {
+      int d;
+      int u = q.popMin(d);
+      if (d > dist[u]) continue;
+      if (onSettle(u)) return;
+      forEachEdge(c, u, [&](int to, int w) {
+        if (d + w < dist[to]) {
+          dist[to] = d + w;
+          onRelax(u, to);
+          q.push(dist[to], to);
+        }
+      });
+    }
+    return;
   }
 
-  res.path = std::move(path);
-  res.hops = dist[t];
-  res.distance = res.hops; // compatibility
+  struct IntLess { bool operator()(int a, int b) const { return a < b; } };
 
-  // Compute weighted cost for the found BFS path (may be larger than Dijkstra).
-  int cost = 0;
-  for (int i = 0; i + 1 < (int)res.path.size(); i++) {
-    int aIdx, bIdx;
-    if (!resolve(res.path[(size_t)i], aIdx) || !resolve(res.path[(size_t)i + 1], bIdx)) { cost = -1; break; }
-    int w = edgeWeight(aIdx, bIdx);
-    if (w < 0) { cost = -1; break; }
-    cost += w;
+  // Level-2: indexed 4-ary heap, one entry per node (decreaseKey instead of duplicates).
+  dsa::IndexedHeap<int, IntLess> pq(n);
+  pq.push(s, 0);
+  while (!pq.empty()) {
+    int u = pq.popMin();
+    if (onSettle(u)) return;
+    forEachEdge(c, u, [&](int to, int w) {
+      if (dist[u] + w < dist[to]) {
+        dist[to] = dist[u] + w;
+        onRelax(u, to);
+        pq.pushOrDecrease(to, dist[to]);
+      }
+    });
   }
-  res.cost = cost;
-  return res;
 }
 
-PathResult CampusGraph::dijkstraShortestPath(const std::string& src, const std::string& dst) {
+PathResult CampusGraph::dijkstraSearch(int s, int t) const {
   PathResult res;
   res.algorithm = "Dijkstra";
-
-  int s, t;
-  if (!resolve(src, s) || !resolve(dst, t)) return res;
+  const Csr& c = csr();
 
   int n = static_cast<int>(nameOf_.size());
   std::vector<int> prev(n, -1);
-  const int INF = 1000000000;
-  std::vector<int> dist(n, INF);
+  std::vector<int> dist(n, kInf);
 
-  struct NodeDist { int d; int v; };
-  struct Less { bool operator()(const NodeDist& a, const NodeDist& b) const { return a.d < b.d; } };
+  dijkstraRun(
+      c, s, dist.data(),
+      [&](int u) {
+        res.visitedIds.push_back(u);
+        res.settled++;
+        return u == t;
+      },
+      [&](int u, int to) { prev[to] = u; });
 
-  // Level-2: MinHeap priority queue
-  dsa::MinHeap<NodeDist, Less> pq;
-  dist[s] = 0;
-  pq.push(NodeDist{0, s});
+  if (dist[t] == kInf) return res;
 
-  std::vector<bool> settled(n, false);
+  fillPath(res, prev, t);
+  res.cost = dist[t];
+  res.distance = res.cost; // compatibility
+  return res;
+}
+
+void CampusGraph::fillPath(PathResult& res, const std::vector<int>& prev, int t) const {
+  int hops = 0;
+  for (int cur = t; prev[(size_t)cur] != -1; cur = prev[(size_t)cur]) hops++;
+  res.nodes.assign((size_t)hops + 1, 0);
+  int i = hops;
+  for (int cur = t; cur != -1; cur = prev[(size_t)cur]) res.nodes[(size_t)i--] = cur;
+  res.hops = hops;
+}
+
+// A*: Dijkstra ordered by g + h, where h = heuristicScale * straight-line distance to t.
+// h is consistent, so a node is final when popped and the cost matches Dijkstra's.
+PathResult CampusGraph::astarSearch(int s, int t) const {
+  PathResult res;
+  res.algorithm = "AStar";
+  const Csr& c = csr();
+  int n = (int)nameOf_.size();
+  double scale = c.heuristicScale;
+
+  std::vector<int> g((size_t)n, kInf);
+  std::vector<int> prev((size_t)n, -1);
+  std::vector<bool> closed((size_t)n, false);
+
+  struct NodeF { double f; int g; int v; };
+  // Equal f: prefer the deeper node (larger g), it is closer to t.
+  struct Less { bool operator()(const NodeF& a, const NodeF& b) const { return a.f < b.f || (a.f == b.f && a.g > b.g); } };
+  dsa::MinHeap<NodeF, Less> pq;
+  g[(size_t)s] = 0;
+  pq.push(NodeF{scale * euclid(s, t), 0, s});
 
   while (!pq.empty()) {
-    NodeDist nd = pq.popMin();
-    int u = nd.v;
-    if (settled[u]) continue;
-    settled[u] = true;
-    res.visitedOrder.push_back(nameOf_[u]);
+    NodeF nf = pq.popMin();
+    int u = nf.v;
+    if (closed[(size_t)u]) continue;
+    closed[(size_t)u] = true;
+    res.visitedIds.push_back(u);
+    res.settled++;
     if (u == t) break;
+    forEachEdge(c, u, [&](int to, int w) {
+      int ng = g[(size_t)u] + w;
+      if (ng < g[(size_t)to]) {
+        g[(size_t)to] = ng;
+        prev[(size_t)to] = u;
+        pq.push(NodeF{ng + scale * euclid(to, t), ng, to});
+      }
+    });
+  }
 
-    for (auto it = adjW_[u].begin(); it != adjW_[u].end(); ++it) {
-      const EdgeW& e = *it;
-      if (dist[u] != INF && dist[u] + e.w < dist[e.to]) {
-        dist[e.to] = dist[u] + e.w;
-        prev[e.to] = u;
-        pq.push(NodeDist{dist[e.to], e.to});
+  if (g[(size_t)t] == kInf) return res;
+  fillPath(res, prev, t);
+  res.cost = g[(size_t)t];
+  res.distance = res.cost;
+  return res;
+}
+
+// Bidirectional Dijkstra (edges are undirected, so both sides share the adjacency).
+// best = min over nodes of df + db, re-checked whenever either side improves a node;
+// stop once the two heap tops together cannot beat it.
+PathResult CampusGraph::biDijkstraSearch(int s, int t) const {
+  PathResult res;
+  res.algorithm = "BiDijkstra";
+  const Csr& c = csr();
+  int n = (int)nameOf_.size();
+
+  std::vector<int> dist[2] = {std::vector<int>((size_t)n, kInf), std::vector<int>((size_t)n, kInf)};
+  std::vector<int> prev[2] = {std::vector<int>((size_t)n, -1), std::vector<int>((size_t)n, -1)};
+  std::vector<bool> done[2] = {std::vector<bool>((size_t)n, false), std::vector<bool>((size_t)n, false)};
+
+  struct NodeDist { int d; int v; };
+  struct Less { bool operator()(const NodeDist& a, const NodeDist& b) const { return a.d < b.d; } };
+  dsa::MinHeap<NodeDist, Less> pq[2];
+
+  dist[0][(size_t)s] = 0;
+  dist[1][(size_t)t] = 0;
+  pq[0].push(NodeDist{0, s});
+  pq[1].push(NodeDist{0, t});
+  int best = s == t ? 0 : kInf;
+  int meet = s == t ? s : -1;
+
+  while (!pq[0].empty() && !pq[1].empty()) {
+    if ((long long)pq[0].top().d + pq[1].top().d >= best) break;
+    int side = pq[0].top().d <= pq[1].top().d ? 0 : 1;
+    NodeDist nd = pq[side].popMin();
+    int u = nd.v;
+    if (done[side][(size_t)u]) continue;
+    done[side][(size_t)u] = true;
+    res.visitedIds.push_back(u);
+    res.settled++;
+    std::vector<int>& d = dist[side];
+    const std::vector<int>& other = dist[1 - side];
+    forEachEdge(c, u, [&](int to, int w) {
+      if (d[(size_t)u] + w < d[(size_t)to]) {
+        d[(size_t)to] = d[(size_t)u] + w;
+        prev[side][(size_t)to] = u;
+        pq[side].push(NodeDist{d[(size_t)to], to});
+        if (other[(size_t)to] != kInf && d[(size_t)to] + other[(size_t)to] < best) {
+          best = d[(size_t)to] + other[(size_t)to];
+          meet = to;
+        }
       }
+    });
+  }
+
+  if (meet < 0) return res;
+  // s .. meet from the forward tree, then meet .. t by walking the backward tree.
+  fillPath(res, prev[0], meet);
+  for (int cur = prev[1][(size_t)meet]; cur != -1; cur = prev[1][(size_t)cur]) res.nodes.push_back(cur);
+  res.hops = (int)res.nodes.size() - 1;
+  res.cost = best;
+  res.distance = best;
+  return res;
+}
+
+// Dijkstra through the contraction hierarchy; visitedIds lists what the two upward
+// searches settled.
+PathResult CampusGraph::hierarchySearch(int s, int t) const {
+  PathResult res;
+  res.algorithm = "Dijkstra";
+  std::vector<int> nodes;
+  int cost;
+  bool found = ch_.query(s, t, nodes, cost, res.visitedIds);
+  res.settled = (int)res.visitedIds.size();
+  if (!found) return res;
+  res.hops = (int)nodes.size() - 1;
+  res.nodes = std::move(nodes);
+  res.cost = cost;
+  res.distance = cost;
+  return res;
+}
+
+HierarchyInfo CampusGraph::buildHierarchy(const std::string& path) {
+  HierarchyInfo info;
+  const Csr& c = csr();
+  int n = (int)nameOf_.size();
+  unsigned long long fp = ContractionHierarchy::fingerprintOf(n, c.off, c.to, c.w);
+  info.loaded = ch_.load(path, fp);
+  if (!info.loaded) {
+    ch_.build(n, c.off, c.to, c.w, fp);
+    info.saved = ch_.save(path);
+  }
+  // Equal-cost routes may now unpack differently from the plain search.
+  cache_.clear(version_);
+  info.ok = ch_.ready();
+  info.nodes = ch_.nodes();
+  info.shortcuts = ch_.shortcuts();
+  info.arcs = ch_.arcs();
+  return info;
+}
+
+void CampusGraph::searchTree(int s, int algo, std::vector<int>& dist, std::vector<int>& prev) const {
+  int n = (int)nameOf_.size();
+  dist.assign((size_t)n, -1);
+  prev.assign((size_t)n, -1);
+  if (s < 0 || s >= n) return;
+  const Csr& c = csr();
+
+  if (algo == kRouteBfs) {
+    dsa::Queue<int> q;
+    dist[(size_t)s] = 0;
+    q.push(s);
+    while (!q.empty()) {
+      int u = q.pop();
+      forEachEdge(c, u, [&](int to, int) {
+        if (dist[(size_t)to] < 0) {
+          dist[(size_t)to] = dist[(size_t)u] + 1;
+          prev[(size_t)to] = u;
+          q.push(to);
+        }
+      });
     }
+    return;
   }
 
-  if (dist[t] == INF) return res;
+  std::vector<int> best((size_t)n, kInf);
+  dijkstraRun(c, s, best.data(), [](int) { return false; }, [&](int u, int to) { prev[(size_t)to] = u; });
+  for (int v = 0; v < n; v++) {
+    if (best[(size_t)v] != kInf) dist[(size_t)v] = best[(size_t)v];
+  }
+}
 
-  std::vector<std::string> path;
-  for (int cur = t; cur != -1; cur = prev[cur]) path.push_back(nameOf_[cur]);
-  // manual reverse
-  for (size_t i = 0, j = path.size() ? path.size() - 1 : 0; i < j; i++, j--) {
-    std::string tmp = path[i];
-    path[i] = path[j];
-    path[j] = tmp;
+// Per-thread scratch for reachableWithin (searches run concurrently under the read gate).
+// Only the entries a query touched are reset afterwards, so arrays stay "all unvisited"
+// between calls and are sized once per map size, not per query.
+namespace {
+struct ReachScratch {
+  struct NodeDist { int d; int v; };
+  struct Less { bool operator()(const NodeDist& a, const NodeDist& b) const { return a.d < b.d; } };
+  std::vector<int> dist; // kInf = not reached
+  std::vector<int> prev;
+  std::vector<int> touched;
+  dsa::MinHeap<NodeDist, Less> pq;
+};
+}
+
+void CampusGraph::reachableWithin(int s, int budget, int algo, std::vector<int>& ids, std::vector<int>& dist,
+                                  std::vector<int>& prev) const {
+  ids.clear();
+  dist.clear();
+  prev.clear();
+  int n = (int)nameOf_.size();
+  if (s < 0 || s >= n || budget < 0) return;
+  const Csr& c = csr();
+
+  static thread_local ReachScratch sc;
+  if ((int)sc.dist.size() != n) {
+    sc.dist.assign((size_t)n, kInf);
+    sc.prev.assign((size_t)n, -1);
   }
+  std::vector<int>& d = sc.dist;
+  std::vector<int>& p = sc.prev;
+  sc.touched.clear();
+  sc.touched.push_back(s);
+  d[(size_t)s] = 0;
 
-  res.path = std::move(path);
-  res.cost = dist[t];
-  res.distance = res.cost; // compatibility
-  res.hops = (int)res.path.size() > 0 ? (int)res.path.size() - 1 : -1;
-  return res;
+  if (algo == kRouteBfs) {
+    // FIFO over `touched` itself: it is the BFS queue, in settle order.
+    for (size_t head = 0; head < sc.touched.size(); head++) {
+      int u = sc.touched[head];
+      if (d[(size_t)u] == budget) continue; // leaves of the hop budget
+      forEachEdge(c, u, [&](int to, int) {
+        if (d[(size_t)to] == kInf) {
+          d[(size_t)to] = d[(size_t)u] + 1;
+          p[(size_t)to] = u;
+          sc.touched.push_back(to);
+        }
+      });
+    }
+    for (size_t i = 0; i < sc.touched.size(); i++) ids.push_back(sc.touched[i]);
+  } else {
+    // Dijkstra that never queues a label past the budget, so it stops by itself once the
+    // frontier would exceed it. Lazy heap: a popped entry is stale if dist improved since.
+    sc.pq.clear();
+    sc.pq.push(ReachScratch::NodeDist{0, s});
+    while (!sc.pq.empty()) {
+      ReachScratch::NodeDist nd = sc.pq.popMin();
+      int u = nd.v;
+      if (nd.d > d[(size_t)u]) continue;
+      ids.push_back(u);
+      forEachEdge(c, u, [&](int to, int w) {
+        long long cand = (long long)nd.d + w;
+        if (cand > budget || cand >= d[(size_t)to]) return;
+        if (d[(size_t)to] == kInf) sc.touched.push_back(to);
+        d[(size_t)to] = (int)cand;
+        p[(size_t)to] = u;
+        sc.pq.push(ReachScratch::NodeDist{(int)cand, to});
+      });
+    }
+  }
+
+  dist.reserve(ids.size());
+  prev.reserve(ids.size());
+  for (size_t i = 0; i < ids.size(); i++) {
+    dist.push_back(d[(size_t)ids[i]]);
+    prev.push_back(p[(size_t)ids[i]]);
+  }
+  for (size_t i = 0; i < sc.touched.size(); i++) {
+    d[(size_t)sc.touched[i]] = kInf;
+    p[(size_t)sc.touched[i]] = -1;
+  }
+}
+
+void CampusGraph::shortestPathBatch(const std::vector<int>& src, const std::vector<int>& dst, int algo,
+                                    std::vector<PathResult>& out) const {
+  int n = (int)nameOf_.size();
+  int q = src.size() < dst.size() ? (int)src.size() : (int)dst.size();
+  bool bfs = algo == kRouteBfs;
+  PathResult blank;
+  blank.algorithm = bfs ? "BFS" : algo == kRouteAStar ? "AStar" : algo == kRouteBiDijkstra ? "BiDijkstra" : "Dijkstra";
+  out.assign((size_t)q, blank);
+
+  // Counting sort of the valid queries by source: O(q + n), query order kept per source.
+  std::vector<int> start((size_t)n + 1, 0);
+  for (int i = 0; i < q; i++) {
+    if (src[(size_t)i] >= 0 && src[(size_t)i] < n && dst[(size_t)i] >= 0 && dst[(size_t)i] < n) start[(size_t)src[(size_t)i] + 1]++;
+  }
+  for (int v = 0; v < n; v++) start[(size_t)v + 1] += start[(size_t)v];
+  std::vector<int> order((size_t)start[(size_t)n]);
+  std::vector<int> fill(start.begin(), start.end() - 1);
+  for (int i = 0; i < q; i++) {
+    if (src[(size_t)i] >= 0 && src[(size_t)i] < n && dst[(size_t)i] >= 0 && dst[(size_t)i] < n) order[(size_t)fill[(size_t)src[(size_t)i]]++] = i;
+  }
+
+  const Csr& c = csr();
+  std::vector<int> dist((size_t)n), prev((size_t)n);
+  std::vector<int> want((size_t)n, 0); // destinations of the current source not settled yet
+  for (int s = 0; s < n; s++) {
+    int lo = start[(size_t)s], hi = start[(size_t)s + 1];
+    if (hi == lo) continue;
+
+    int remaining = 0;
+    for (int k = lo; k < hi; k++) {
+      if (want[(size_t)dst[(size_t)order[(size_t)k]]]++ == 0) remaining++;
+    }
+    for (int v = 0; v < n; v++) prev[(size_t)v] = -1;
+    int settled = 0;
+    if (bfs) {
+      // Same queue order as bfsSearch, so the tree (and every path) is the same.
+      for (int v = 0; v < n; v++) dist[(size_t)v] = kInf;
+      dsa::Queue<int> qu;
+      dist[(size_t)s] = 0;
+      qu.push(s);
+      while (!qu.empty() && remaining > 0) {
+        int u = qu.pop();
+        settled++;
+        if (want[(size_t)u] > 0) remaining--;
+        forEachEdge(c, u, [&](int to, int) {
+          if (dist[(size_t)to] == kInf) {
+            dist[(size_t)to] = dist[(size_t)u] + 1;
+            prev[(size_t)to] = u;
+            qu.push(to);
+          }
+        });
+      }
+    } else {
+      dijkstraRun(
+          c, s, dist.data(),
+          [&](int u) {
+            settled++;
+            if (want[(size_t)u] > 0) remaining--;
+            return remaining == 0;
+          },
+          [&](int u, int to) { prev[(size_t)to] = u; });
+    }
+
+    for (int k = lo; k < hi; k++) {
+      int i = order[(size_t)k], t = dst[(size_t)i];
+      want[(size_t)t] = 0;
+      PathResult& res = out[(size_t)i];
+      res.settled = settled;
+      if (dist[(size_t)t] == kInf) continue;
+      fillPath(res, prev, t);
+      int cost = fillWeights(res);
+      res.cost = bfs ? cost : dist[(size_t)t];
+      res.distance = bfs ? res.hops : res.cost;
+    }
+  }
 }
 
 void CampusGraph::divergenceStats(int& totalPairs, int& divergedPairs, int& percent) const {
-  totalPairs = 0;
-  divergedPairs = 0;
-  percent = 0;
+  DivergenceReport r = divergenceReport();
+  totalPairs = r.totalPairs;
+  divergedPairs = r.divergedPairs;
+  percent = r.percent;
+}
+
+// ---------------- Divergence index ----------------
+// A pair (s, t) diverges when BFS picks fewer hops but a higher cost than Dijkstra.
+// Both searches from s build the same prev-tree whatever t is (the per-pair versions only
+// stop early), so one full BFS + one full Dijkstra per source answers every t at once.
+// Fewer hops already implies a different path, so no path comparison is needed.
+
+struct CampusGraph::SourceScratch {
+  std::vector<int> bcost; // weighted cost along the BFS tree path
+  std::vector<int> dhops; // hops along the Dijkstra tree path
+  dsa::Queue<int> q;
+};
+
+int CampusGraph::divergedFromSource(int s, SourceScratch& sc, int* hops, int* dist) const {
   int n = (int)nameOf_.size();
-  if (n <= 1) return;
-
-  // unordered pairs
-  for (int i = 0; i < n; i++) {
-    for (int j = i + 1; j < n; j++) {
-      totalPairs++;
-      const std::string& a = nameOf_[(size_t)i];
-      const std::string& b = nameOf_[(size_t)j];
-
-      // Use const_cast to call existing methods without changing signatures.
-      CampusGraph* self = const_cast<CampusGraph*>(this);
-      PathResult bfs = self->bfsShortestPath(a, b);
-      PathResult dij = self->dijkstraShortestPath(a, b);
-      if (bfs.path.empty() || dij.path.empty()) continue;
-
-      bool differentPath = bfs.path != dij.path;
-      bool bfsFewerHops = bfs.hops >= 0 && dij.hops >= 0 && bfs.hops < dij.hops;
-      bool bfsHigherCost = bfs.cost >= 0 && dij.cost >= 0 && bfs.cost > dij.cost;
-      if (differentPath && bfsFewerHops && bfsHigherCost) divergedPairs++;
+  const Csr& c = csr();
+  sc.bcost.assign((size_t)n, 0);
+  sc.dhops.assign((size_t)n, 0);
+
+  // BFS (same adjacency order as bfsSearch, so the same tree).
+  for (int i = 0; i < n; i++) hops[i] = -1;
+  hops[s] = 0;
+  sc.q.push(s);
+  while (!sc.q.empty()) {
+    int u = sc.q.pop();
+    forEachEdge(c, u, [&](int to, int w) {
+      if (hops[to] < 0) {
+        hops[to] = hops[u] + 1;
+        sc.bcost[(size_t)to] = sc.bcost[(size_t)u] + w; // first u->to edge == edgeWeight(u, to)
+        sc.q.push(to);
+      }
+    });
+  }
+
+  // Dijkstra (dijkstraRun, like dijkstraSearch, so the same tree).
+  dijkstraRun(c, s, dist, [](int) { return false; },
+              [&](int u, int to) { sc.dhops[(size_t)to] = sc.dhops[(size_t)u] + 1; });
+
+  int diverged = 0;
+  for (int t = s + 1; t < n; t++) {
+    if (hops[t] < 0 || dist[t] == kInf) continue;
+    if (hops[t] < sc.dhops[(size_t)t] && sc.bcost[(size_t)t] > dist[t]) diverged++;
+  }
+  return diverged;
+}
+
+DivergenceReport CampusGraph::divergenceReport() const {
+  DivergenceReport r;
+  int n = (int)nameOf_.size();
+  r.totalPairs = n > 1 ? n * (n - 1) / 2 : 0;
+
+  divLock_.lock();
+  if (divIndex_.version == version_ && divIndex_.n == n) {
+    // Only rows marked by addEdge() need work; rebuilt in place while holding the lock.
+    if (divIndex_.dirtyCount > 0) {
+      SourceScratch sc;
+      for (int s = 0; s < n; s++) {
+        if (!divIndex_.dirty[(size_t)s]) continue;
+        int d = divergedFromSource(s, sc, &divIndex_.hops[(size_t)s * (size_t)n], &divIndex_.dist[(size_t)s * (size_t)n]);
+        divIndex_.totalDiverged += d - divIndex_.diverged[(size_t)s];
+        divIndex_.diverged[(size_t)s] = d;
+        divIndex_.dirty[(size_t)s] = false;
+        r.recomputedSources++;
+      }
+      divIndex_.dirtyCount = 0;
+    }
+    r.divergedPairs = divIndex_.totalDiverged;
+    divLock_.unlock();
+    r.percent = (r.totalPairs > 0) ? (r.divergedPairs * 100) / r.totalPairs : 0;
+    return r;
+  }
+  divLock_.unlock();
+
+  // Build outside the lock (searches only read the graph), then install.
+  DivergenceIndex built;
+  built.version = version_;
+  built.n = n;
+  built.hasRows = n <= kDivergenceRowsMaxNodes;
+  built.diverged.assign((size_t)n, 0);
+  built.dirty.assign((size_t)n, false);
+  std::vector<int> hopsTmp, distTmp;
+  if (built.hasRows) {
+    built.hops.assign((size_t)n * (size_t)n, 0);
+    built.dist.assign((size_t)n * (size_t)n, 0);
+  } else {
+    hopsTmp.assign((size_t)n, 0);
+    distTmp.assign((size_t)n, 0);
+  }
+  SourceScratch sc;
+  for (int s = 0; s < n; s++) {
+    int* hr = built.hasRows ? &built.hops[(size_t)s * (size_t)n] : hopsTmp.data();
+    int* dr = built.hasRows ? &built.dist[(size_t)s * (size_t)n] : distTmp.data();
+    built.diverged[(size_t)s] = divergedFromSource(s, sc, hr, dr);
+    built.totalDiverged += built.diverged[(size_t)s];
+  }
+  r.divergedPairs = built.totalDiverged;
+  r.recomputedSources = n;
+  r.percent = (r.totalPairs > 0) ? (r.divergedPairs * 100) / r.totalPairs : 0;
+
+  divLock_.lock();
+  if (built.version == version_) divIndex_ = std::move(built);
+  divLock_.unlock();
+  return r;
+}
+
+// Conservative: true only when the search from s provably runs exactly as before with
+// the new edge (a, b, w) appended to both adjacency lists.
+bool CampusGraph::rowUnaffected(int s, const int* hops, const int* dist, int a, int b, int w) const {
+  // BFS: the tree is unchanged unless the new edge discovers a node first.
+  if (hops[a] < 0 || hops[b] < 0) {
+    if (hops[a] >= 0 || hops[b] >= 0) return false; // joins s's component to another
+  } else if (hops[a] != hops[b]) {
+    int x = hops[a] < hops[b] ? a : b;
+    int y = x == a ? b : a;
+    if (hops[y] > hops[x] + 1) return false;
+    // hops[y] == hops[x] + 1: safe only if an older x-y edge already reached y first.
+    int seen = 0;
+    for (auto it = adjW_[x].begin(); it != adjW_[x].end(); ++it) {
+      if ((*it).to == y) seen++;
     }
+    if (seen < 2) return false;
+  }
+
+  // Dijkstra: unchanged if relaxing the new edge never pushes. When x settles (the
+  // endpoint with the smaller distance), every neighbour z of y with dist[z] < dist[x]
+  // has already relaxed y, so the tentative dist[y] is at most their best offer.
+  if (dist[a] == kInf || dist[b] == kInf) return dist[a] == kInf && dist[b] == kInf;
+  for (int pass = 0; pass < 2; pass++) {
+    int x = pass == 0 ? a : b;
+    int y = pass == 0 ? b : a;
+    if (dist[x] > dist[y] || y == s) continue;
+    int bound = kInf;
+    for (auto it = adjW_[y].begin(); it != adjW_[y].end(); ++it) {
+      const EdgeW& e = *it;
+      if (dist[e.to] < dist[x] && dist[e.to] + e.w < bound) bound = dist[e.to] + e.w;
+    }
+    if ((long long)bound > (long long)dist[x] + w) return false;
+  }
+  return true;
+}
+
+// Called by addEdge() after the edge is in place and the version bumped. Only marks rows
+// (O(n * degree)); the searches run in the next divergenceReport(), not under the writer.
+void CampusGraph::markDivergenceForEdge(int a, int b, int w) {
+  int n = (int)nameOf_.size();
+  divLock_.lock();
+  if (divIndex_.version != version_ - 1 || divIndex_.n != n || !divIndex_.hasRows) {
+    divIndex_.version = -1; // rebuilt in full on the next report
+    divLock_.unlock();
+    return;
+  }
+  for (int s = 0; s < n; s++) {
+    if (divIndex_.dirty[(size_t)s]) continue; // stale row: nothing to compare against
+    if (rowUnaffected(s, &divIndex_.hops[(size_t)s * (size_t)n], &divIndex_.dist[(size_t)s * (size_t)n], a, b, w)) continue;
+    divIndex_.dirty[(size_t)s] = true;
+    divIndex_.dirtyCount++;
   }
-  percent = (totalPairs > 0) ? (divergedPairs * 100) / totalPairs : 0;
+  divIndex_.version = version_;
+  divLock_.unlock();
 }
@@ -3,10 +3,16 @@
 #include <string>
 #include <vector>
 
+#include "contraction.h"
 #include "dsa_level1.h"
 #include "dsa_min_heap.h"
 
 struct PathResult {
+  // Searches fill the id fields (indices into CampusGraph::locations()); the name fields
+  // are only filled for the by-name shortestPath().
+  std::vector<int> nodes;       // path, source first
+  std::vector<int> edgeWeights; // nodes.size() - 1 entries
+  std::vector<int> visitedIds;  // settle order
   std::vector<std::string> path;
   // For compatibility: previously used as BFS hops / Dijkstra cost.
   int distance = -1;
@@ -15,16 +21,100 @@ struct PathResult {
   int cost = -1; // sum of weights along path
   std::string algorithm;
   std::vector<std::string> visitedOrder; // for BFS visualization
+  int settled = 0; // nodes expanded by the search (both directions for BiDijkstra)
 };
 
+enum RouteAlgo { kRouteBfs = 0, kRouteDijkstra = 1, kRouteAStar = 2, kRouteBiDijkstra = 3 };
+
+// Priority queue behind Dijkstra: auto = Dial buckets when every weight is small, else heap.
+enum DijkstraQueue { kQueueAuto = 0, kQueueHeap = 1, kQueueBuckets = 2 };
+
+struct HierarchyInfo {
+  bool ok = false;
+  bool loaded = false; // read from the file instead of rebuilt
+  bool saved = false;
+  int nodes = 0;
+  int shortcuts = 0;
+  int arcs = 0;
+};
+
+struct DivergenceReport {
+  int totalPairs = 0;
+  int divergedPairs = 0;
+  int percent = 0;
+  int recomputedSources = 0; // per-source trees rebuilt to answer this call (0 = served from the index)
+};
+
+// Bounded LRU of search results keyed by (src, dst, algorithm) node indices.
+// Searches run concurrently under the native read gate, so the cache has its own lock.
+class RouteCache {
+ public:
+  explicit RouteCache(int capacity);
+
+  bool get(int s, int t, int algo, PathResult& out);   // counts a hit or a miss
+  void put(int s, int t, int algo, const PathResult& r, long long version);
+  void clear(long long version);                       // drop everything, accept only `version`
+
+  struct Stats {
+    long long hits = 0;
+    long long misses = 0;
+    long long evictions = 0;
+    int size = 0;
+    int capacity = 0;
+    long long version = 0;
+  };
+  Stats stats() const;
+
+ private:
+  struct Entry {
+    std::string key;
+    PathResult value;
+    int prev = -1; // towards most recently used
+    int next = -1; // towards least recently used
+  };
+
+  std::vector<Entry> slots_;
+  dsa::HashMap<int> index_; // key -> slot
+  int head_ = -1;           // most recently used
+  int tail_ = -1;           // least recently used
+  int size_ = 0;
+  long long version_ = 0;
+  long long hits_ = 0;
+  long long misses_ = 0;
+  long long evictions_ = 0;
+  mutable SpinLock lock_;
+
+  static std::string keyOf(int s, int t, int algo);
+  void unlink(int i);
+  void pushFront(int i);
+};
+
+class GraphRef;
+
 class CampusGraph {
  public:
+  // Seeds the default map. Request handlers do not build graphs: they read defaultGraph().
   CampusGraph();
 
+  // The default campus map, seeded once per process on first use and only read after that
+  // (searches and their caches are safe under concurrent readers). Backends hold it through
+  // a GraphRef and get a private copy on their first edit.
+  static const CampusGraph& defaultGraph();
+  static GraphRef sharedDefault();
+
+  // Process-wide counters: seedDefault() runs and copy-on-write clones.
+  struct BuildStats {
+    long long seeds = 0;
+    long long copies = 0;
+  };
+  static BuildStats buildStats();
+
   void seedDefault();
   std::vector<std::string> locations() const;
 
   bool addLocation(const std::string& name);
+  // With map coordinates (any consistent unit); A* needs them on every location.
+  bool addLocation(const std::string& name, double x, double y);
   // Single consistent campus graph:
   // - BFS treats this adjacency as unweighted (min hops)
   // - Dijkstra uses weights (min total cost)
@@ -34,20 +124,202 @@ class CampusGraph {
   bool resolve(const std::string& name, int& idx) const;
   int edgeWeight(int fromIdx, int toIdx) const;
 
-  PathResult bfsShortestPath(const std::string& src, const std::string& dst);
-  PathResult dijkstraShortestPath(const std::string& src, const std::string& dst);
+  // Searches are const: concurrent readers may run them under the native read gate.
+  PathResult bfsShortestPath(const std::string& src, const std::string& dst) const;
+  PathResult dijkstraShortestPath(const std::string& src, const std::string& dst) const;
+  // Any RouteAlgo. AStar and BiDijkstra return Dijkstra-optimal costs while settling fewer
+  // nodes; AStar falls back to plain Dijkstra order when a location has no coordinates.
+  PathResult shortestPath(const std::string& src, const std::string& dst, int algo) const;
+  // Same search by location id (the index in locations(); ids never change, edits only
+  // append). Skips name hashing and leaves path/visitedOrder empty.
+  PathResult shortestPath(int s, int t, int algo) const;
+
+  // "BFS", "AStar" (or "A*"), "BiDijkstra"; anything else is Dijkstra.
+  static int algoFromName(const std::string& name);
+
+  // Full single-source search without path strings: dist (hops for BFS, cost for
+  // Dijkstra; -1 = unreachable) and prev (-1 = root/unreachable) for every node.
+  void searchTree(int s, int algo, std::vector<int>& dist, std::vector<int>& prev) const;
+
+  // Everything within `budget` of s: cost for Dijkstra (any non-BFS algo), hops for BFS.
+  // ids in settle order (non-decreasing dist) with dist and prev (-1 for s) alongside.
+  // Work and memory are proportional to the region found, not to the whole map.
+  void reachableWithin(int s, int budget, int algo, std::vector<int>& ids, std::vector<int>& dist,
+                       std::vector<int>& prev) const;
+
+  // Many (src[i], dst[i]) routes by id, out[i] in query order (nodes, edgeWeights and the
+  // metrics; no visited list). Queries are grouped by source and each source runs one
+  // search tree that stops once all of its destinations are settled, so a route does not
+  // depend on the rest of the batch. BFS and Dijkstra paths match bfsSearch/dijkstraSearch;
+  // other algorithms return Dijkstra's tree, same cost. The route cache and a built
+  // hierarchy are not used: shortestPath() with a hierarchy may return another path of
+  // the same cost.
+  void shortestPathBatch(const std::vector<int>& src, const std::vector<int>& dst, int algo,
+                         std::vector<PathResult>& out) const;
 
   // Measures how often BFS picks fewer hops but higher cost than Dijkstra.
   // Returns JSON-friendly fields: totalPairs, divergedPairs, percent.
   void divergenceStats(int& totalPairs, int& divergedPairs, int& percent) const;
+  // Same measurement from one BFS tree + one Dijkstra tree per source. The per-source
+  // rows are kept; addEdge() marks the sources the new edge can affect and only those
+  // are rebuilt by the next report.
+  DivergenceReport divergenceReport() const;
+
+  // Builds the CSR traversal arrays now (seedDefault and bulk loads call it once at the end).
+  void freeze() const { (void)csr(); }
+
+  // Optional contraction hierarchy: once built, Dijkstra routes are answered by two upward
+  // searches and unpacked back to original edges (same cost; equal-cost ties may pick a
+  // different path). Loads `path` when it holds a hierarchy for this exact graph, else
+  // builds one and saves it there (empty path = memory only). Any edit drops it.
+  HierarchyInfo buildHierarchy(const std::string& path);
+  bool hasHierarchy() const { return ch_.ready(); }
+
+  // Route cache counters; every graph edit bumps the version and empties the cache.
+  RouteCache::Stats cacheStats() const { return cache_.stats(); }
+  long long version() const { return version_; }
+  // Node pool counters summed over every adjacency list.
+  dsa::PoolStats edgePoolStats() const;
 
  private:
+  friend class GraphRef;
+  friend struct GraphBench; // bench_impl.cpp: the knobs below, on its own private graphs
+
+  // Benchmark baseline only: walk the linked lists instead of the CSR arrays. Plain flags
+  // read by every search, so never set on a graph that is being queried.
+  void setListTraversal(bool on) { listTraversal_ = on; }
+  // Benchmark only: force the Dijkstra queue (kQueueBuckets still needs bounded weights).
+  void setDijkstraQueue(int mode) { queueMode_ = mode; }
+
+  struct NoSeed {};
+  explicit CampusGraph(NoSeed) {}
+  // Same locations, coordinates and adjacency order (so identical routes); caches, the
+  // divergence index and any hierarchy start empty.
+  CampusGraph* clone() const;
+
   struct EdgeW { int to; int w; };
 
+  static const int kRouteCacheCapacity = 256; // every ordered pair x 2 algorithms of the default map
+  long long version_ = 0;
+  mutable RouteCache cache_{kRouteCacheCapacity};
+
+  void bumpVersion();
+  PathResult search(int s, int t, int algo) const; // uncached dispatch
+  void nameResult(PathResult& res) const;          // path/visitedOrder from the ids
+  int fillWeights(PathResult& res) const;          // edgeWeights from nodes; sum, -1 if an edge is missing
+  PathResult bfsSearch(int s, int t) const;
+  PathResult dijkstraSearch(int s, int t) const;
+  PathResult astarSearch(int s, int t) const;
+  PathResult biDijkstraSearch(int s, int t) const;
+  PathResult hierarchySearch(int s, int t) const;
+  void fillPath(PathResult& res, const std::vector<int>& prev, int t) const;
+
+  ContractionHierarchy ch_;
+
+  // Map coordinates per location (A* heuristic).
+  struct Coord { double x = 0; double y = 0; bool known = false; };
+  std::vector<Coord> coordOf_;
+  double euclid(int a, int b) const;
+
+  // All-pairs divergence index: row s holds BFS depth and Dijkstra distance from s.
+  struct DivergenceIndex {
+    long long version = -1;    // graph version the index describes (-1 = not built)
+    int n = 0;
+    bool hasRows = false;      // rows are n*n ints, only kept up to kDivergenceRowsMaxNodes
+    std::vector<int> hops;     // n*n, -1 = unreachable
+    std::vector<int> dist;     // n*n, kInf = unreachable
+    std::vector<int> diverged; // per source s: diverging pairs (s, j > s)
+    std::vector<bool> dirty;   // rows an added edge may have changed
+    int dirtyCount = 0;
+    int totalDiverged = 0;
+  };
+  struct SourceScratch;
+  static const int kDivergenceRowsMaxNodes = 2048;
+  mutable DivergenceIndex divIndex_;
+  mutable SpinLock divLock_;
+
+  int divergedFromSource(int s, SourceScratch& sc, int* hopsRow, int* distRow) const;
+  bool rowUnaffected(int s, const int* hopsRow, const int* distRow, int a, int b, int w) const;
+  void markDivergenceForEdge(int a, int b, int w);
+
   // Level-1: HashMap for name->index, LinkedList adjacency lists
   dsa::HashMap<int> indexOf_;
   std::vector<std::string> nameOf_;
   std::vector<dsa::LinkedList<EdgeW>> adjW_;
 
+  // Frozen CSR copy of adjW_ used by every search. Row u is [off[u], off[u + 1]) in
+  // insertion order, so BFS/Dijkstra tie-breaks match the lists exactly; sortedTo/sortedW
+  // hold the same row stably sorted by `to` for a binary-search edgeWeight(). Edits only
+  // invalidate it and the next search rebuilds it once, so a bulk load pays one build.
+  struct Csr {
+    std::vector<int> off;
+    std::vector<int> to;
+    std::vector<int> w;
+    std::vector<int> sortedTo;
+    std::vector<int> sortedW;
+    int maxWeight = 0;
+    // A* scale: min over edges of w / straight-line length, so scale * euclid(v, t) never
+    // overestimates (and stays consistent). 0 when any location lacks coordinates.
+    double heuristicScale = 0;
+  };
+  mutable Csr csr_;
+  mutable int csrReady_ = 0;
+  mutable SpinLock csrLock_;
+  bool listTraversal_ = false;
+  int queueMode_ = kQueueAuto;
+  // Dial's ring has maxWeight + 1 buckets; past this the binary heap is the better deal.
+  static const int kBucketMaxWeight = 1024;
+  bool useBuckets(const Csr& c) const {
+    return queueMode_ != kQueueHeap && c.maxWeight > 0 && c.maxWeight <= kBucketMaxWeight;
+  }
+
+  void invalidateCsr() { __atomic_store_n(&csrReady_, 0, __ATOMIC_RELEASE); }
+  bool csrReady() const { return __atomic_load_n(&csrReady_, __ATOMIC_ACQUIRE) != 0; }
+  const Csr& csr() const;
+  void buildCsr() const;
+
+  // The one Dijkstra loop behind dijkstraSearch, searchTree and the divergence rows, so
+  // they all build the same tree. onSettle(u) returns true to stop; onRelax(u, to) runs
+  // when dist[to] improves through u.
+  template <typename Settle, typename Relax>
+  void dijkstraRun(const Csr& c, int s, int* dist, Settle&& onSettle, Relax&& onRelax) const;
+
+  template <typename Fn>
+  void forEachEdge(const Csr& c, int u, Fn&& fn) const {
+    if (listTraversal_) {
+      for (auto it = adjW_[u].begin(); it != adjW_[u].end(); ++it) fn((*it).to, (*it).w);
+      return;
+    }
+    const int* to = c.to.data();
+    const int* w = c.w.data();
+    for (int i = c.off[(size_t)u], end = c.off[(size_t)u + 1]; i < end; i++) fn(to[i], w[i]);
+  }
+
   // (kept as public above)
 };
+
+// Reference-counted handle with copy-on-write: copies share one graph, and edit() on a
+// graph someone else also holds clones it first, so the other holders never see the write.
+class GraphRef {
+ public:
+  GraphRef() = default;
+  explicit GraphRef(CampusGraph* owned); // takes ownership
+  GraphRef(const GraphRef& o);
+  GraphRef& operator=(const GraphRef& o);
+  ~GraphRef();
+
+  const CampusGraph& operator*() const { return *box_->graph; }
+  const CampusGraph* operator->() const { return box_->graph; }
+  // Callers hold the native write gate, so no reader is mid-search on the graph it returns.
+  CampusGraph& edit();
+  int useCount() const;
+
+ private:
+  struct Box {
+    CampusGraph* graph;
+    int refs;
+  };
+  Box* box_ = nullptr;
+
+  void release();
+};
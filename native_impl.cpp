@@ -1,11 +1,13 @@
 #include <jni.h>
 
+#include <fstream>
 #include <iostream>
 #include <string>
 #include <vector>
 
 #include "NativeBridge.h"
 #include "backend.h"
+#include "utils_bin.h"
 #include "utils_json.h"
 
 extern "C" {
@@ -14,6 +16,160 @@ using jsonutil::Kv;
 
 static jfieldID gHandleField = nullptr;
 
+// ---- Reader/writer gate ----
+// The Backend (AVL store + graph) is not thread-safe on its own. Every JNI entry point
+// takes this gate first: lookups share it, mutations (and init/close, which replace the
+// Backend) take it exclusively. <shared_mutex>/<thread> are outside the header rule, so
+// the counters are guarded by the JVM monitor of one private Object and threads park in
+// Object.wait(). A queued writer blocks new readers so a steady read load cannot starve it.
+struct RwGate {
+  jobject monitor = nullptr;
+  jmethodID waitId = nullptr;
+  jmethodID notifyAllId = nullptr;
+  jclass threadCls = nullptr;
+  jmethodID currentThreadId = nullptr;
+  jmethodID interruptId = nullptr;
+  int readers = 0;
+  int writersWaiting = 0;
+  bool writer = false;
+};
+static RwGate gGate;
+
+// Monotonic clock for elapsed-time fields (<chrono> is outside the header rule).
+static jclass gSystemCls = nullptr;
+static jmethodID gNanoTimeId = nullptr;
+
+static long long nanoTime(JNIEnv* env) {
+  return (long long)env->CallStaticLongMethod(gSystemCls, gNanoTimeId);
+}
+
+// java.io.File.lastModified() backs StudentStore's cheap CSV check (no stat in the headers).
+static JavaVM* gVm = nullptr;
+static jclass gFileCls = nullptr;
+static jmethodID gFileInitId = nullptr;
+static jmethodID gLastModifiedId = nullptr;
+
+static long long fileModifiedMs(const std::string& path) {
+  JNIEnv* env = nullptr;
+  if (gVm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) return -1;
+  jstring p = env->NewStringUTF(path.c_str());
+  if (!p) {
+    env->ExceptionClear();
+    return -1;
+  }
+  jobject f = env->NewObject(gFileCls, gFileInitId, p);
+  long long ms = f ? (long long)env->CallLongMethod(f, gLastModifiedId) : -1;
+  if (env->ExceptionCheck()) {
+    env->ExceptionClear();
+    ms = -1;
+  }
+  if (f) env->DeleteLocalRef(f);
+  env->DeleteLocalRef(p);
+  return ms > 0 ? ms : -1; // 0 = missing or unknown
+}
+
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void*) {
+  JNIEnv* env = nullptr;
+  if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) return JNI_ERR;
+  jclass objCls = env->FindClass("java/lang/Object");
+  jobject m = env->NewObject(objCls, env->GetMethodID(objCls, "<init>", "()V"));
+  gGate.monitor = env->NewGlobalRef(m);
+  env->DeleteLocalRef(m);
+  gGate.waitId = env->GetMethodID(objCls, "wait", "()V");
+  gGate.notifyAllId = env->GetMethodID(objCls, "notifyAll", "()V");
+  jclass thr = env->FindClass("java/lang/Thread");
+  gGate.threadCls = (jclass)env->NewGlobalRef(thr);
+  gGate.currentThreadId = env->GetStaticMethodID(thr, "currentThread", "()Ljava/lang/Thread;");
+  gGate.interruptId = env->GetMethodID(thr, "interrupt", "()V");
+  jclass sys = env->FindClass("java/lang/System");
+  gSystemCls = (jclass)env->NewGlobalRef(sys);
+  gNanoTimeId = env->GetStaticMethodID(sys, "nanoTime", "()J");
+  jclass file = env->FindClass("java/io/File");
+  if (file) {
+    gVm = vm;
+    gFileCls = (jclass)env->NewGlobalRef(file);
+    gFileInitId = env->GetMethodID(file, "<init>", "(Ljava/lang/String;)V");
+    gLastModifiedId = env->GetMethodID(file, "lastModified", "()J");
+    if (gFileInitId && gLastModifiedId) StudentStore::setModifiedTimeSource(fileModifiedMs);
+  }
+
+  // Resolve the handle field once here so readers never race on the lazy lookup.
+  jclass nb = env->FindClass("NativeBridge");
+  if (nb) gHandleField = env->GetFieldID(nb, "handle", "J");
+  if (env->ExceptionCheck()) env->ExceptionClear();
+  return JNI_VERSION_1_6;
+}
+
+// Caller holds the monitor. Returns true if the wait was interrupted: a native call
+// cannot give up half-way, so the interrupt is remembered and restored after acquiring.
+static bool gateWait(JNIEnv* env) {
+  env->CallVoidMethod(gGate.monitor, gGate.waitId);
+  if (!env->ExceptionCheck()) return false;
+  env->ExceptionClear();
+  return true;
+}
+
+static void gateRestoreInterrupt(JNIEnv* env) {
+  jobject t = env->CallStaticObjectMethod(gGate.threadCls, gGate.currentThreadId);
+  env->CallVoidMethod(t, gGate.interruptId);
+  env->DeleteLocalRef(t);
+}
+
+// Release side may run while the native body left an exception pending (e.g. OOM in
+// NewStringUTF); park it so the monitor calls are legal, then re-throw.
+static void gateRelease(JNIEnv* env, bool exclusive) {
+  jthrowable pending = env->ExceptionOccurred();
+  if (pending) env->ExceptionClear();
+  env->MonitorEnter(gGate.monitor);
+  bool wake;
+  if (exclusive) {
+    gGate.writer = false;
+    wake = true;
+  } else {
+    wake = (--gGate.readers == 0 && gGate.writersWaiting > 0);
+  }
+  if (wake) env->CallVoidMethod(gGate.monitor, gGate.notifyAllId);
+  env->MonitorExit(gGate.monitor);
+  if (pending) {
+    env->Throw(pending);
+    env->DeleteLocalRef(pending);
+  }
+}
+
+class ReadGate {
+ public:
+  explicit ReadGate(JNIEnv* env) : env_(env) {
+    bool interrupted = false;
+    env_->MonitorEnter(gGate.monitor);
+    while (gGate.writer || gGate.writersWaiting > 0) interrupted |= gateWait(env_);
+    gGate.readers++;
+    env_->MonitorExit(gGate.monitor);
+    if (interrupted) gateRestoreInterrupt(env_);
+  }
+  ~ReadGate() { gateRelease(env_, false); }
+
+ private:
+  JNIEnv* env_;
+};
+
+class WriteGate {
+ public:
+  explicit WriteGate(JNIEnv* env) : env_(env) {
+    bool interrupted = false;
+    env_->MonitorEnter(gGate.monitor);
+    gGate.writersWaiting++;
+    while (gGate.writer || gGate.readers > 0) interrupted |= gateWait(env_);
+    gGate.writersWaiting--;
+    gGate.writer = true;
+    env_->MonitorExit(gGate.monitor);
+    if (interrupted) gateRestoreInterrupt(env_);
+  }
+  ~WriteGate() { gateRelease(env_, true); }
+
+ private:
+  JNIEnv* env_;
+};
+
 static Backend* getBackend(JNIEnv* env, jobject obj) {
   if (!obj) return nullptr;
   if (!gHandleField) {
@@ -24,6 +180,39 @@ static Backend* getBackend(JNIEnv* env, jobject obj) {
   return reinterpret_cast<Backend*>(h);
 }
 
+// Route source for navigator calls; without a backend the shared default map (never a
+// graph built for the request).
+static const CampusGraph& navGraph(Backend* b) {
+  return b ? *b->nav : CampusGraph::defaultGraph();
+}
+
+static jbyteArray toByteArray(JNIEnv* env, const std::vector<unsigned char>& bytes) {
+  jbyteArray out = env->NewByteArray((jsize)bytes.size());
+  if (!bytes.empty()) env->SetByteArrayRegion(out, 0, (jsize)bytes.size(), reinterpret_cast<const jbyte*>(bytes.data()));
+  return out;
+}
+
+// int[][] with one int[] per row.
+static jobjectArray toIntArrays(JNIEnv* env, const std::vector<int>* const* rows, int count) {
+  jobjectArray out = env->NewObjectArray(count, env->FindClass("[I"), nullptr);
+  for (int r = 0; r < count; r++) {
+    std::vector<jint> tmp(rows[r]->begin(), rows[r]->end());
+    jintArray arr = env->NewIntArray((jsize)tmp.size());
+    if (!tmp.empty()) env->SetIntArrayRegion(arr, 0, (jsize)tmp.size(), tmp.data());
+    env->SetObjectArrayElement(out, r, arr);
+    env->DeleteLocalRef(arr);
+  }
+  return out;
+}
+
+static std::string jstr(JNIEnv* env, jstring s) {
+  if (!s) return std::string();
+  const char* c = env->GetStringUTFChars(s, nullptr);
+  std::string out = c ? std::string(c) : std::string();
+  env->ReleaseStringUTFChars(s, c);
+  return out;
+}
+
 static void setBackend(JNIEnv* env, jobject obj, Backend* b) {
   if (!gHandleField) {
     jclass cls = env->GetObjectClass(obj);
@@ -37,6 +226,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_testConnection(JNIEnv* env, jobject)
 }
 
 JNIEXPORT jboolean JNICALL Java_NativeBridge_init(JNIEnv* env, jobject obj, jstring csvPath) {
+  WriteGate gate(env);
   const char* p = env->GetStringUTFChars(csvPath, nullptr);
   std::string path = p ? std::string(p) : std::string("data/students.csv");
   env->ReleaseStringUTFChars(csvPath, p);
@@ -48,7 +238,6 @@ JNIEXPORT jboolean JNICALL Java_NativeBridge_init(JNIEnv* env, jobject obj, jstr
   }
 
   Backend* b = new Backend(path);
-  b->nav.seedDefault();
   StoreResult lr = b->students.load();
   (void)lr;
 
@@ -69,6 +258,7 @@ JNIEXPORT jboolean JNICALL Java_NativeBridge_init(JNIEnv* env, jobject obj, jstr
 }
 
 JNIEXPORT void JNICALL Java_NativeBridge_close(JNIEnv* env, jobject obj) {
+  WriteGate gate(env);
   Backend* b = getBackend(env, obj);
   if (b) {
     delete b;
@@ -76,21 +266,58 @@ JNIEXPORT void JNICALL Java_NativeBridge_close(JNIEnv* env, jobject obj) {
   }
 }
 
-JNIEXPORT jstring JNICALL Java_NativeBridge_sisImportCsv(JNIEnv* env, jobject obj, jstring csvPath) {
+// sisImportCsv is overloaded (with and without a progress listener): long JNI names.
+// Progress goes to an IntConsumer on the calling (backend writer) thread; a listener that
+// throws stops receiving updates but does not abort the import.
+struct ImportListener {
+  JNIEnv* env;
+  jobject target;
+  jmethodID accept;
+};
+
+static void reportImportProgress(void* ctx, int percent) {
+  ImportListener* l = static_cast<ImportListener*>(ctx);
+  if (!l->accept) return;
+  l->env->CallVoidMethod(l->target, l->accept, (jint)percent);
+  if (l->env->ExceptionCheck()) {
+    l->env->ExceptionClear();
+    l->accept = nullptr;
+  }
+}
+
+static jstring importCsvJson(JNIEnv* env, jobject obj, jstring csvPath, jobject listener) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("{\"ok\":false,\"message\":\"Backend not initialized.\"}");
-  const char* p = env->GetStringUTFChars(csvPath, nullptr);
-  std::string path = p ? std::string(p) : std::string();
-  env->ReleaseStringUTFChars(csvPath, p);
-
-  StoreResult sr = bkend->students.switchToFile(path);
+  std::string path = jstr(env, csvPath);
+
+  ImportListener l{env, listener, nullptr};
+  if (listener) {
+    jclass cls = env->GetObjectClass(listener);
+    l.accept = env->GetMethodID(cls, "accept", "(I)V");
+    env->DeleteLocalRef(cls);
+    if (!l.accept) env->ExceptionClear();
+  }
+  ImportProgress progress{reportImportProgress, &l};
+  StoreResult sr = bkend->students.switchToFile(path, l.accept ? &progress : nullptr);
   std::vector<Kv> kv;
   kv.push_back(Kv{"ok", sr.ok ? "true" : "false"});
   kv.push_back(Kv{"message", jsonutil::quote(sr.message)});
   return env->NewStringUTF(jsonutil::obj(kv).c_str());
 }
 
+JNIEXPORT jstring JNICALL Java_NativeBridge_sisImportCsv__Ljava_lang_String_2(JNIEnv* env, jobject obj, jstring csvPath) {
+  return importCsvJson(env, obj, csvPath, nullptr);
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_sisImportCsv__Ljava_lang_String_2Ljava_util_function_IntConsumer_2(
+    JNIEnv* env, jobject obj, jstring csvPath, jobject onPercent) {
+  return importCsvJson(env, obj, csvPath, onPercent);
+}
+
+// Exclusive even though the store is only read: two exports to one path must not interleave.
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisExportCsv(JNIEnv* env, jobject obj, jstring csvPath) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("{\"ok\":false,\"message\":\"Backend not initialized.\"}");
   const char* p = env->GetStringUTFChars(csvPath, nullptr);
@@ -109,8 +336,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_getShortestPath(JNIEnv* env, jobject
   const char* a = env->GetStringUTFChars(src, nullptr);
   const char* b = env->GetStringUTFChars(dest, nullptr);
 
-  CampusGraph g;
-  PathResult pr = g.dijkstraShortestPath(a ? a : "", b ? b : "");
+  PathResult pr = CampusGraph::defaultGraph().dijkstraShortestPath(a ? a : "", b ? b : "");
 
   env->ReleaseStringUTFChars(src, a);
   env->ReleaseStringUTFChars(dest, b);
@@ -133,11 +359,10 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_getShortestPath(JNIEnv* env, jobject
   return env->NewStringUTF(out.c_str());
 }
 
+// Index i is location id i (navShortestPathIds); the table only ever grows at the end.
 JNIEXPORT jobjectArray JNICALL Java_NativeBridge_navLocations(JNIEnv* env, jobject obj) {
-  Backend* b = getBackend(env, obj);
-  CampusGraph* g = b ? &b->nav : nullptr;
-  CampusGraph local;
-  std::vector<std::string> locs = (g ? g->locations() : local.locations());
+  ReadGate gate(env);
+  std::vector<std::string> locs = navGraph(getBackend(env, obj)).locations();
   jclass stringClass = env->FindClass("java/lang/String");
   jobjectArray arr = env->NewObjectArray((jsize)locs.size(), stringClass, env->NewStringUTF(""));
   for (jsize i = 0; i < (jsize)locs.size(); i++) {
@@ -146,22 +371,16 @@ JNIEXPORT jobjectArray JNICALL Java_NativeBridge_navLocations(JNIEnv* env, jobje
   return arr;
 }
 
+// Shared by the JSON and binary route endpoints. Edge weights come with the result.
+static PathResult runRoute(Backend* bkend, const std::string& a, const std::string& b, const std::string& algs) {
+  return navGraph(bkend).shortestPath(a, b, CampusGraph::algoFromName(algs));
+}
+
 JNIEXPORT jstring JNICALL Java_NativeBridge_navShortestPath(JNIEnv* env, jobject obj, jstring src, jstring dest, jstring algorithm) {
+  ReadGate gate(env);
   Backend* bkend = getBackend(env, obj);
-  CampusGraph* g = bkend ? &bkend->nav : nullptr;
-  CampusGraph local;
-
-  const char* a = env->GetStringUTFChars(src, nullptr);
-  const char* b = env->GetStringUTFChars(dest, nullptr);
-  const char* alg = env->GetStringUTFChars(algorithm, nullptr);
-
-  std::string algs = alg ? std::string(alg) : std::string();
-  PathResult pr = (algs == "BFS") ? (g ? g->bfsShortestPath(a ? a : "", b ? b : "") : local.bfsShortestPath(a ? a : "", b ? b : ""))
-                                 : (g ? g->dijkstraShortestPath(a ? a : "", b ? b : "") : local.dijkstraShortestPath(a ? a : "", b ? b : ""));
-
-  env->ReleaseStringUTFChars(src, a);
-  env->ReleaseStringUTFChars(dest, b);
-  env->ReleaseStringUTFChars(algorithm, alg);
+  PathResult pr = runRoute(bkend, jstr(env, src), jstr(env, dest), jstr(env, algorithm));
+  const std::vector<int>& weights = pr.edgeWeights;
 
   if (pr.distance < 0 || pr.path.empty()) {
     std::vector<Kv> kv;
@@ -176,18 +395,8 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_navShortestPath(JNIEnv* env, jobject
   for (const auto& s : pr.path) pathQuoted.push_back(jsonutil::quote(s));
   std::vector<std::string> visQuoted;
   for (const auto& s : pr.visitedOrder) visQuoted.push_back(jsonutil::quote(s));
-
-  // Edge weights along the returned path (for UI animation timing + explanation).
   std::vector<std::string> edgeWeights;
-  if (!pr.path.empty()) {
-    for (int i = 0; i + 1 < (int)pr.path.size(); i++) {
-      int ai, bi;
-      if (!(g ? g->resolve(pr.path[(size_t)i], ai) : local.resolve(pr.path[(size_t)i], ai))) { edgeWeights.push_back("0"); continue; }
-      if (!(g ? g->resolve(pr.path[(size_t)i + 1], bi) : local.resolve(pr.path[(size_t)i + 1], bi))) { edgeWeights.push_back("0"); continue; }
-      int w = (g ? g->edgeWeight(ai, bi) : local.edgeWeight(ai, bi));
-      edgeWeights.push_back(std::to_string(w < 0 ? 0 : w));
-    }
-  }
+  for (size_t i = 0; i < weights.size(); i++) edgeWeights.push_back(std::to_string(weights[i]));
 
   std::vector<Kv> kv;
   kv.push_back(Kv{"ok", "true"});
@@ -198,28 +407,228 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_navShortestPath(JNIEnv* env, jobject
   kv.push_back(Kv{"path", jsonutil::arr(pathQuoted)});
   kv.push_back(Kv{"visited", jsonutil::arr(visQuoted)});
   kv.push_back(Kv{"edgeWeights", jsonutil::arr(edgeWeights)});
+  kv.push_back(Kv{"settled", std::to_string(pr.settled)});
   std::string out = jsonutil::obj(kv);
   return env->NewStringUTF(out.c_str());
 }
 
+// Binary layout: ok, distance, hops, cost, algorithm(str),
+//                pathCount, path(str)*, visitedCount, visited(str)*, weightCount, weight*, settled
+JNIEXPORT jbyteArray JNICALL Java_NativeBridge_navShortestPathBin(JNIEnv* env, jobject obj, jstring src, jstring dest, jstring algorithm) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  PathResult pr = runRoute(bkend, jstr(env, src), jstr(env, dest), jstr(env, algorithm));
+  const std::vector<int>& weights = pr.edgeWeights;
+  bool ok = pr.distance >= 0 && !pr.path.empty();
+
+  binutil::Writer w;
+  w.i32(ok ? 1 : 0);
+  w.i32(pr.distance);
+  w.i32(pr.hops);
+  w.i32(pr.cost);
+  w.str(pr.algorithm);
+  w.i32((int)pr.path.size());
+  for (const auto& s : pr.path) w.str(s);
+  w.i32((int)pr.visitedOrder.size());
+  for (const auto& s : pr.visitedOrder) w.str(s);
+  w.i32((int)weights.size());
+  for (size_t i = 0; i < weights.size(); i++) w.i32(weights[i]);
+  w.i32(pr.settled);
+  return toByteArray(env, w.finish());
+}
+
+// Route by location id (index into navLocations()): no strings cross JNI either way.
+// Layout: ok, distance, hops, cost, settled, pathCount, path ids, weight per edge
+//         (pathCount - 1), visitedCount, visited ids
+JNIEXPORT jintArray JNICALL Java_NativeBridge_navShortestPathIds(JNIEnv* env, jobject obj, jint src, jint dst, jint algo) {
+  ReadGate gate(env);
+  PathResult pr = navGraph(getBackend(env, obj)).shortestPath((int)src, (int)dst, (int)algo);
+  bool ok = pr.distance >= 0 && !pr.nodes.empty();
+
+  std::vector<jint> out;
+  out.reserve(7 + pr.nodes.size() * 2 + pr.visitedIds.size());
+  out.push_back(ok ? 1 : 0);
+  out.push_back(pr.distance);
+  out.push_back(pr.hops);
+  out.push_back(pr.cost);
+  out.push_back(pr.settled);
+  out.push_back((jint)pr.nodes.size());
+  for (size_t i = 0; i < pr.nodes.size(); i++) out.push_back(pr.nodes[i]);
+  for (size_t i = 0; i < pr.edgeWeights.size(); i++) out.push_back(pr.edgeWeights[i]);
+  out.push_back((jint)pr.visitedIds.size());
+  for (size_t i = 0; i < pr.visitedIds.size(); i++) out.push_back(pr.visitedIds[i]);
+
+  jintArray arr = env->NewIntArray((jsize)out.size());
+  env->SetIntArrayRegion(arr, 0, (jsize)out.size(), out.data());
+  return arr;
+}
+
+// Many routes in one crossing; queries sharing a source share one search tree.
+// Layout, per query in order: distance (-1 = no route), hops, cost, pathCount, path ids
+JNIEXPORT jintArray JNICALL Java_NativeBridge_navShortestPathBatch(JNIEnv* env, jobject obj, jintArray srcIds, jintArray dstIds, jint algo) {
+  ReadGate gate(env);
+  jsize ns = srcIds ? env->GetArrayLength(srcIds) : 0;
+  jsize nd = dstIds ? env->GetArrayLength(dstIds) : 0;
+  jsize q = ns < nd ? ns : nd;
+  std::vector<int> src((size_t)q), dst((size_t)q);
+  if (q > 0) {
+    std::vector<jint> tmp((size_t)q);
+    env->GetIntArrayRegion(srcIds, 0, q, tmp.data());
+    for (jsize i = 0; i < q; i++) src[(size_t)i] = (int)tmp[(size_t)i];
+    env->GetIntArrayRegion(dstIds, 0, q, tmp.data());
+    for (jsize i = 0; i < q; i++) dst[(size_t)i] = (int)tmp[(size_t)i];
+  }
+
+  std::vector<PathResult> results;
+  navGraph(getBackend(env, obj)).shortestPathBatch(src, dst, (int)algo, results);
+
+  std::vector<jint> out;
+  out.reserve((size_t)q * 8);
+  for (size_t i = 0; i < results.size(); i++) {
+    const PathResult& pr = results[i];
+    bool ok = pr.distance >= 0 && !pr.nodes.empty();
+    out.push_back(ok ? pr.distance : -1);
+    out.push_back(pr.hops);
+    out.push_back(pr.cost);
+    out.push_back(ok ? (jint)pr.nodes.size() : 0);
+    if (ok) {
+      for (size_t k = 0; k < pr.nodes.size(); k++) out.push_back(pr.nodes[k]);
+    }
+  }
+  jintArray arr = env->NewIntArray((jsize)out.size());
+  if (!out.empty()) env->SetIntArrayRegion(arr, 0, (jsize)out.size(), out.data());
+  return arr;
+}
+
+// Whole search tree from one location: {dist, prev}, indexed by location id. dist is hops
+// (BFS) or cost (any other algo), -1 = unreachable; prev is -1 at the root/unreachable.
+JNIEXPORT jobjectArray JNICALL Java_NativeBridge_navShortestPathTree(JNIEnv* env, jobject obj, jint src, jint algo) {
+  ReadGate gate(env);
+  std::vector<int> dist, prev;
+  navGraph(getBackend(env, obj)).searchTree((int)src, (int)algo == kRouteBfs ? kRouteBfs : kRouteDijkstra, dist, prev);
+
+  const std::vector<int>* rows[2] = {&dist, &prev};
+  return toIntArrays(env, rows, 2);
+}
+
+// Isochrone: every location within `budget` of src (cost, or hops for BFS), as
+// {ids, dist, prev} in settle order. Only the reachable region is searched.
+JNIEXPORT jobjectArray JNICALL Java_NativeBridge_navReachable(JNIEnv* env, jobject obj, jint src, jint budget, jint algo) {
+  ReadGate gate(env);
+  std::vector<int> ids, dist, prev;
+  navGraph(getBackend(env, obj)).reachableWithin((int)src, (int)budget, (int)algo, ids, dist, prev);
+
+  const std::vector<int>* rows[3] = {&ids, &dist, &prev};
+  return toIntArrays(env, rows, 3);
+}
+
 JNIEXPORT jstring JNICALL Java_NativeBridge_navDivergenceReport(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
+  const CampusGraph* gg = &navGraph(getBackend(env, obj));
+
+  long long t0 = nanoTime(env);
+  DivergenceReport r = gg->divergenceReport();
+  long long elapsedUs = (nanoTime(env) - t0) / 1000;
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"totalPairs", std::to_string(r.totalPairs)});
+  kv.push_back(Kv{"divergedPairs", std::to_string(r.divergedPairs)});
+  kv.push_back(Kv{"percent", std::to_string(r.percent)});
+  kv.push_back(Kv{"recomputedSources", std::to_string(r.recomputedSources)});
+  kv.push_back(Kv{"elapsedUs", std::to_string(elapsedUs)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_navCacheStats(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  RouteCache::Stats st = navGraph(bkend).cacheStats();
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"hits", std::to_string(st.hits)});
+  kv.push_back(Kv{"misses", std::to_string(st.misses)});
+  kv.push_back(Kv{"evictions", std::to_string(st.evictions)});
+  kv.push_back(Kv{"size", std::to_string(st.size)});
+  kv.push_back(Kv{"capacity", std::to_string(st.capacity)});
+  kv.push_back(Kv{"version", std::to_string(st.version)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+// Graph builds in this process: {seeds, copies, sharedBy, shared}. seeds stays at 1 however
+// many routes are served (benchmarks build their own private maps and add to it).
+JNIEXPORT jstring JNICALL Java_NativeBridge_navGraphStats(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  CampusGraph::BuildStats st = CampusGraph::buildStats();
+  GraphRef shared = CampusGraph::sharedDefault();
+  bool usesDefault = !bkend || &*bkend->nav == &*shared;
+
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"seeds", std::to_string(st.seeds)});
+  kv.push_back(Kv{"copies", std::to_string(st.copies)});
+  kv.push_back(Kv{"sharedBy", std::to_string(shared.useCount() - 2)}); // backends: minus the holder and `shared`
+  kv.push_back(Kv{"shared", usesDefault ? "true" : "false"});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+// Optional contraction hierarchy for Dijkstra routes: loads `path` when it was built for
+// this exact map, otherwise builds (and saves) one. A writer: it swaps the route source.
+JNIEXPORT jstring JNICALL Java_NativeBridge_navBuildHierarchy(JNIEnv* env, jobject obj, jstring path) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
-  CampusGraph* g = bkend ? &bkend->nav : nullptr;
-  CampusGraph local;
-  CampusGraph* gg = g ? g : &local;
+  if (!bkend) {
+    std::vector<Kv> kv;
+    kv.push_back(Kv{"ok", "false"});
+    kv.push_back(Kv{"error", jsonutil::quote("Backend not initialized.")});
+    return env->NewStringUTF(jsonutil::obj(kv).c_str());
+  }
 
-  int totalPairs = 0, divergedPairs = 0, percent = 0;
-  gg->divergenceStats(totalPairs, divergedPairs, percent);
+  long long t0 = nanoTime(env);
+  HierarchyInfo hi = bkend->nav.edit().buildHierarchy(jstr(env, path));
+  long long elapsedMs = (nanoTime(env) - t0) / 1000000;
 
   std::vector<Kv> kv;
-  kv.push_back(Kv{"totalPairs", std::to_string(totalPairs)});
-  kv.push_back(Kv{"divergedPairs", std::to_string(divergedPairs)});
-  kv.push_back(Kv{"percent", std::to_string(percent)});
+  kv.push_back(Kv{"ok", hi.ok ? "true" : "false"});
+  kv.push_back(Kv{"loaded", hi.loaded ? "true" : "false"});
+  kv.push_back(Kv{"saved", hi.saved ? "true" : "false"});
+  kv.push_back(Kv{"nodes", std::to_string(hi.nodes)});
+  kv.push_back(Kv{"shortcuts", std::to_string(hi.shortcuts)});
+  kv.push_back(Kv{"arcs", std::to_string(hi.arcs)});
+  kv.push_back(Kv{"elapsedMs", std::to_string(elapsedMs)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
+}
+
+static std::string poolJson(const dsa::PoolStats& s) {
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"requests", std::to_string(s.requests)});
+  kv.push_back(Kv{"reused", std::to_string(s.reused)});
+  kv.push_back(Kv{"slabs", std::to_string(s.slabs)});
+  kv.push_back(Kv{"capacity", std::to_string(s.capacity)});
+  kv.push_back(Kv{"live", std::to_string(s.live)});
+  return jsonutil::obj(kv);
+}
+
+// Node pool counters: {students, attendanceIndex, edges}, each
+// {requests, reused, slabs, capacity, live}.
+JNIEXPORT jstring JNICALL Java_NativeBridge_sisAllocStats(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  dsa::PoolStats students, index, edges;
+  if (bkend) {
+    students = bkend->students.recordPoolStats();
+    index = bkend->students.indexPoolStats();
+    edges = bkend->nav->edgePoolStats();
+  }
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"students", poolJson(students)});
+  kv.push_back(Kv{"attendanceIndex", poolJson(index)});
+  kv.push_back(Kv{"edges", poolJson(edges)});
   return env->NewStringUTF(jsonutil::obj(kv).c_str());
 }
 
 // Insert-only (prevents overwrite) per requirements.
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisUpsertStudent(JNIEnv* env, jobject obj, jint roll, jstring name, jstring program, jint year) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) {
     std::vector<Kv> kv;
@@ -250,6 +659,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_sisUpsertStudent(JNIEnv* env, jobjec
 }
 
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisGetStudent(JNIEnv* env, jobject obj, jint roll) {
+  ReadGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("");
   StudentRecord r;
@@ -268,6 +678,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_sisGetStudent(JNIEnv* env, jobject o
 }
 
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisGetStudentTrace(JNIEnv* env, jobject obj, jint roll) {
+  ReadGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("");
   StudentRecord r;
@@ -291,6 +702,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_sisGetStudentTrace(JNIEnv* env, jobj
 }
 
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisDeleteStudent(JNIEnv* env, jobject obj, jint roll) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) {
     std::vector<Kv> kv;
@@ -307,6 +719,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_sisDeleteStudent(JNIEnv* env, jobjec
 }
 
 JNIEXPORT jstring JNICALL Java_NativeBridge_sisListStudents(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("[]");
   std::vector<StudentRecord> all = bkend->students.listByRoll();
@@ -325,7 +738,30 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_sisListStudents(JNIEnv* env, jobject
   return env->NewStringUTF(jsonutil::arr(items).c_str());
 }
 
+// Binary layout: count, then per student: roll, semester, present, total, name(str), program(str)
+JNIEXPORT jbyteArray JNICALL Java_NativeBridge_sisListStudentsBin(JNIEnv* env, jobject obj) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  binutil::Writer w;
+  if (!bkend) {
+    w.i32(0);
+    return toByteArray(env, w.finish());
+  }
+  std::vector<StudentRecord> all = bkend->students.listByRoll();
+  w.i32((int)all.size());
+  for (const auto& r : all) {
+    w.i32(r.roll);
+    w.i32(r.semester);
+    w.i32(r.present);
+    w.i32(r.total);
+    w.str(r.name);
+    w.str(r.program);
+  }
+  return toByteArray(env, w.finish());
+}
+
 JNIEXPORT jstring JNICALL Java_NativeBridge_attNewSessionDay(JNIEnv* env, jobject obj) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) {
     std::vector<Kv> kv;
@@ -342,6 +778,7 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_attNewSessionDay(JNIEnv* env, jobjec
 }
 
 JNIEXPORT jstring JNICALL Java_NativeBridge_attMarkPresent(JNIEnv* env, jobject obj, jint roll) {
+  WriteGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) {
     std::vector<Kv> kv;
@@ -357,7 +794,31 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_attMarkPresent(JNIEnv* env, jobject
   return env->NewStringUTF(jsonutil::obj(kv).c_str());
 }
 
+JNIEXPORT jintArray JNICALL Java_NativeBridge_attMarkPresentBatch(JNIEnv* env, jobject obj, jintArray rolls) {
+  WriteGate gate(env);
+  jsize n = rolls ? env->GetArrayLength(rolls) : 0;
+  jintArray out = env->NewIntArray(n + 1);
+  if (!out) return nullptr; // OutOfMemoryError pending
+  Backend* bkend = getBackend(env, obj);
+  if (!bkend) return out; // all zeros = nothing applied, nothing saved
+
+  std::vector<jint> rv((size_t)n);
+  if (n > 0) env->GetIntArrayRegion(rolls, 0, n, rv.data());
+  if (env->ExceptionCheck()) return nullptr;
+
+  std::vector<int> status;
+  StoreResult saved = bkend->students.markPresentBatch(std::vector<int>(rv.begin(), rv.end()), status);
+
+  // Trailing flag: the marks are applied in memory either way, but only durable if saved.
+  std::vector<jint> st((size_t)n + 1);
+  for (jsize i = 0; i < n; i++) st[(size_t)i] = (jint)status[(size_t)i];
+  st[(size_t)n] = saved.ok ? 1 : 0;
+  env->SetIntArrayRegion(out, 0, n + 1, st.data());
+  return out;
+}
+
 JNIEXPORT jstring JNICALL Java_NativeBridge_attGetSummary(JNIEnv* env, jobject obj, jint roll) {
+  ReadGate gate(env);
   Backend* bkend = getBackend(env, obj);
   if (!bkend) return env->NewStringUTF("");
   StudentRecord r;
@@ -373,10 +834,9 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_attGetSummary(JNIEnv* env, jobject o
   return env->NewStringUTF(jsonutil::obj(kv).c_str());
 }
 
-JNIEXPORT jstring JNICALL Java_NativeBridge_attGetDefaulters(JNIEnv* env, jobject obj, jint minPercent) {
-  Backend* bkend = getBackend(env, obj);
-  if (!bkend) return env->NewStringUTF("[]");
-  auto list = bkend->students.defaultersBelow((int)minPercent);
+// attGetDefaulters / attGetDefaultersBin are overloaded (with and without a limit), so
+// JNI needs the long, signature-mangled names for both forms.
+static std::string attendanceRowsJson(const std::vector<StudentRecord>& list) {
   std::vector<std::string> items;
   items.reserve(list.size());
   for (const auto& s : list) {
@@ -389,7 +849,82 @@ JNIEXPORT jstring JNICALL Java_NativeBridge_attGetDefaulters(JNIEnv* env, jobjec
     kv.push_back(Kv{"percent", std::to_string(pct)});
     items.push_back(jsonutil::obj(kv));
   }
-  return env->NewStringUTF(jsonutil::arr(items).c_str());
+  return jsonutil::arr(items);
+}
+
+static jstring defaultersJson(JNIEnv* env, jobject obj, int minPercent, int limit) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  if (!bkend) return env->NewStringUTF("[]");
+  return env->NewStringUTF(attendanceRowsJson(bkend->students.defaultersBelow(minPercent, limit)).c_str());
+}
+
+// Binary layout: count, then per defaulter: roll, present, total, percent, name(str)
+static jbyteArray defaultersBin(JNIEnv* env, jobject obj, int minPercent, int limit) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  binutil::Writer w;
+  if (!bkend) {
+    w.i32(0);
+    return toByteArray(env, w.finish());
+  }
+  auto list = bkend->students.defaultersBelow(minPercent, limit);
+  w.i32((int)list.size());
+  for (const auto& s : list) {
+    w.i32(s.roll);
+    w.i32(s.present);
+    w.i32(s.total);
+    w.i32((s.total > 0) ? (s.present * 100) / s.total : 0);
+    w.str(s.name);
+  }
+  return toByteArray(env, w.finish());
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_attGetDefaulters__I(JNIEnv* env, jobject obj, jint minPercent) {
+  return defaultersJson(env, obj, (int)minPercent, 0);
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_attGetDefaulters__II(JNIEnv* env, jobject obj, jint minPercent, jint limit) {
+  return defaultersJson(env, obj, (int)minPercent, (int)limit);
+}
+
+JNIEXPORT jbyteArray JNICALL Java_NativeBridge_attGetDefaultersBin__I(JNIEnv* env, jobject obj, jint minPercent) {
+  return defaultersBin(env, obj, (int)minPercent, 0);
+}
+
+JNIEXPORT jbyteArray JNICALL Java_NativeBridge_attGetDefaultersBin__II(JNIEnv* env, jobject obj, jint minPercent, jint limit) {
+  return defaultersBin(env, obj, (int)minPercent, (int)limit);
+}
+
+// Order-statistic queries (attendance_index.cpp): O(log n) on the (percent, roll) index.
+JNIEXPORT jint JNICALL Java_NativeBridge_attCountBelow(JNIEnv* env, jobject obj, jint minPercent) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  if (!bkend) return 0;
+  return (jint)bkend->students.countBelow((int)minPercent);
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_attLowest(JNIEnv* env, jobject obj, jint k) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  if (!bkend) return env->NewStringUTF("[]");
+  return env->NewStringUTF(attendanceRowsJson(bkend->students.lowest((int)k)).c_str());
+}
+
+JNIEXPORT jstring JNICALL Java_NativeBridge_attPercentileRank(JNIEnv* env, jobject obj, jint roll) {
+  ReadGate gate(env);
+  Backend* bkend = getBackend(env, obj);
+  if (!bkend) return env->NewStringUTF("");
+  AttendanceRank r;
+  if (!bkend->students.percentileRank((int)roll, r)) return env->NewStringUTF("");
+  std::vector<Kv> kv;
+  kv.push_back(Kv{"roll", std::to_string(r.roll)});
+  kv.push_back(Kv{"percent", std::to_string(r.percent)});
+  kv.push_back(Kv{"rank", std::to_string(r.rank)});
+  kv.push_back(Kv{"below", std::to_string(r.below)});
+  kv.push_back(Kv{"count", std::to_string(r.count)});
+  kv.push_back(Kv{"percentile", std::to_string(r.percentile)});
+  return env->NewStringUTF(jsonutil::obj(kv).c_str());
 }
 
 } // extern "C"
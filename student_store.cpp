@@ -2,41 +2,49 @@
 
 #include <iostream>
 
+// Field parsing works on [b, e) character ranges into the line (or the whole file
+// buffer), so splitting and number conversion never allocate.
+struct Span {
+  const char* b;
+  const char* e;
+};
+
+static inline bool isSpace(char c) { return c == ' ' || c == '\t' || c == '\r' || c == '\n'; }
+
+static inline Span trimSpan(Span s) {
+  while (s.b < s.e && isSpace(*s.b)) s.b++;
+  while (s.e > s.b && isSpace(s.e[-1])) s.e--;
+  return s;
+}
+
 static inline std::string trim(const std::string& s) {
-  size_t a = 0;
-  while (a < s.size() && (s[a] == ' ' || s[a] == '\t' || s[a] == '\r' || s[a] == '\n')) a++;
-  size_t b = s.size();
-  while (b > a && (s[b - 1] == ' ' || s[b - 1] == '\t' || s[b - 1] == '\r' || s[b - 1] == '\n')) b--;
-  return s.substr(a, b - a);
+  Span t = trimSpan(Span{s.data(), s.data() + s.size()});
+  return std::string(t.b, (size_t)(t.e - t.b));
 }
 
-static inline bool split6(const std::string& line, std::string out[6]) {
+// Exactly six comma-separated fields.
+static inline bool split6(Span line, Span out[6]) {
   int idx = 0;
-  std::string cur;
-  for (size_t i = 0; i < line.size(); i++) {
-    char c = line[i];
-    if (c == ',') {
-      if (idx >= 6) return false;
-      out[idx++] = cur;
-      cur.clear();
-    } else {
-      cur.push_back(c);
-    }
+  const char* start = line.b;
+  for (const char* p = line.b; p < line.e; p++) {
+    if (*p != ',') continue;
+    if (idx >= 5) return false;
+    out[idx++] = Span{start, p};
+    start = p + 1;
   }
   if (idx != 5) return false;
-  out[idx] = cur;
+  out[idx] = Span{start, line.e};
   return true;
 }
 
-static inline int toInt(const std::string& s, int def) {
+static inline int toInt(Span s, int def) {
   int sign = 1;
-  size_t i = 0;
-  std::string t = trim(s);
-  if (t.empty()) return def;
-  if (t[0] == '-') { sign = -1; i = 1; }
+  Span t = trimSpan(s);
+  if (t.b == t.e) return def;
+  if (*t.b == '-') { sign = -1; t.b++; }
   long long v = 0;
-  for (; i < t.size(); i++) {
-    char c = t[i];
+  for (const char* p = t.b; p < t.e; p++) {
+    char c = *p;
     if (c < '0' || c > '9') return def;
     v = v * 10 + (c - '0');
     if (v > 2000000000LL) break;
@@ -44,6 +52,40 @@ static inline int toInt(const std::string& s, int def) {
   return (int)(sign * v);
 }
 
+static inline int toInt(const std::string& s, int def) {
+  return toInt(Span{s.data(), s.data() + s.size()}, def);
+}
+
+// nullptr = parsed; "" = not a data row (blank line or header); otherwise why it was rejected.
+static const char* parseRow(Span line, StudentRecord& out) {
+  Span t = trimSpan(line);
+  if (t.b == t.e) return "";
+  // skip header
+  if (t.e - t.b >= 4 && t.b[0] == 'r' && t.b[1] == 'o' && t.b[2] == 'l' && t.b[3] == 'l') return "";
+
+  Span parts[6];
+  if (!split6(line, parts)) return "expected 6 comma-separated fields";
+
+  out.roll = toInt(parts[0], -1);
+  Span name = trimSpan(parts[1]);
+  Span program = trimSpan(parts[2]);
+  out.semester = toInt(parts[3], 1);
+  out.present = toInt(parts[4], 0);
+  out.total = toInt(parts[5], 0);
+
+  if (out.roll <= 0) return "invalid roll";
+  if (name.b == name.e) return "name required";
+  if (program.b == program.e) return "program required";
+  out.name.assign(name.b, (size_t)(name.e - name.b));
+  out.program.assign(program.b, (size_t)(program.e - program.b));
+  if (out.semester < 1) out.semester = 1;
+  if (out.present < 0) out.present = 0;
+  if (out.total < 0) out.total = 0;
+  if (out.present > out.total) out.present = out.total;
+
+  return nullptr;
+}
+
 StudentStore::StudentStore(const std::string& csvPath) : path_(csvPath) {}
 
 int StudentStore::percent(int present, int total) {
@@ -64,29 +106,7 @@ StoreResult StudentStore::ensureFileExists() {
 }
 
 bool StudentStore::parseLine(const std::string& line, StudentRecord& out) {
-  if (line.empty()) return false;
-  // skip header
-  if (line.size() >= 4 && line.substr(0, 4) == "roll") return false;
-
-  std::string parts[6];
-  if (!split6(line, parts)) return false;
-
-  out.roll = toInt(parts[0], -1);
-  out.name = trim(parts[1]);
-  out.program = trim(parts[2]);
-  out.semester = toInt(parts[3], 1);
-  out.present = toInt(parts[4], 0);
-  out.total = toInt(parts[5], 0);
-
-  if (out.roll <= 0) return false;
-  if (out.name.empty()) return false;
-  if (out.program.empty()) return false;
-  if (out.semester < 1) out.semester = 1;
-  if (out.present < 0) out.present = 0;
-  if (out.total < 0) out.total = 0;
-  if (out.present > out.total) out.present = out.total;
-
-  return true;
+  return parseRow(Span{line.data(), line.data() + line.size()}, out) == nullptr;
 }
 
 std::string StudentStore::toLine(const StudentRecord& r) {
@@ -108,32 +128,443 @@ std::string StudentStore::toLine(const StudentRecord& r) {
 }
 
 StoreResult StudentStore::load() {
-  StoreResult ok = ensureFileExists();
-  if (!ok.ok) return ok;
+  return load(nullptr);
+}
 
-  std::ifstream in(path_.c_str());
-  if (!in.good()) return StoreResult{false, "Failed to open data file."};
+StoreResult StudentStore::load(const ImportProgress* progress) {
+  // Bulk load: skip per-insert index updates and rebuild once at the end.
+  invalidateIndex();
+
+  // The snapshot (or its backup, if the last write was torn) unless the CSV was replaced.
+  foldedSeq_ = 0;
+  csvBehind_ = false;
+  bool replaced = false;
+  bool fromSnapshot = readSnapshot(snapshotPath(), replaced) ||
+                      (!replaced && readSnapshot(snapshotPath() + ".bak", replaced));
+  int loaded = db_.size();
+  std::string rejected;
+  if (!fromSnapshot) {
+    StoreResult ok = ensureFileExists();
+    if (!ok.ok) return ok;
+    loaded = importCsv(rejected, progress);
+    if (loaded < 0) return StoreResult{false, "Failed to open data file."};
+    csv_ = fileStamp(path_); // ensureFileExists may have just created it
+    csv_.modified = modifiedTime(path_);
+  }
 
-  std::string line;
-  int loaded = 0;
-  while (std::getline(in, line)) {
-    StudentRecord r;
-    if (!parseLine(line, r)) continue;
-    // insert only, duplicates in file are skipped
-    if (db_.insert(r)) loaded++;
+  // Bring the snapshot up to date, then fold the journal back into it. The journal of
+  // replaced data must not land on the new rows.
+  int replayed = 0;
+  int dropped = 0;
+  if (replaced) dropped = dropJournal();
+  else replayed = replayJournal();
+  std::string msg = "Loaded " + std::to_string(loaded) + " students.";
+  if (!rejected.empty()) msg += " " + rejected;
+  if (replaced) {
+    msg += " The data file was changed outside the app and replaced the saved data";
+    msg += dropped > 0 ? "; discarded " + std::to_string(dropped) + " journal entries." : ".";
+  }
+  if (replayed > 0) msg += " Replayed " + std::to_string(replayed) + " journal entries.";
+  if (!fromSnapshot || journalEntries_ > 0 || csvBehind_) {
+    // A fresh import with nothing replayed is already what the CSV holds.
+    StoreResult c = compact(fromSnapshot || replayed > 0);
+    if (!c.ok) msg += " " + c.message;
+  }
+  percentIndex(); // rebuilt by the writer, see byPercent_
+
+  return StoreResult{true, msg};
+}
+
+namespace {
+
+struct RowKey {
+  int roll;
+  int line; // 1-based line in the CSV
+  int row;  // index into the parsed rows
+};
+
+// Iterative stable merge sort by roll: rows with the same roll stay in file order, so the
+// first of a run of duplicates is the one that appeared first.
+void sortByRoll(std::vector<RowKey>& a) {
+  bool sorted = true;
+  for (size_t i = 1; i < a.size() && sorted; i++) sorted = a[i - 1].roll < a[i].roll;
+  if (sorted) return; // common case: the file is already in roll order
+
+  std::vector<RowKey> tmp(a.size());
+  for (size_t width = 1; width < a.size(); width *= 2) {
+    for (size_t i = 0; i < a.size(); i += 2 * width) {
+      size_t m = i + width < a.size() ? i + width : a.size();
+      size_t r = i + 2 * width < a.size() ? i + 2 * width : a.size();
+      size_t p = i, q = m, k = i;
+      while (p < m && q < r) {
+        if (a[q].roll < a[p].roll) tmp[k++] = a[q++];
+        else tmp[k++] = a[p++];
+      }
+      while (p < m) tmp[k++] = a[p++];
+      while (q < r) tmp[k++] = a[q++];
+    }
+    a.swap(tmp);
+  }
+}
+
+} // namespace
+
+int StudentStore::importCsv(std::string& rejected, const ImportProgress* progress) {
+  // One bulk read of the whole file; rows are parsed in place from the buffer.
+  long long bytes = fileSize(path_);
+  if (bytes < 0) return -1;
+  std::string buf((size_t)bytes, '\0');
+  {
+    std::ifstream in(path_.c_str(), std::ios::in | std::ios::binary);
+    if (!in.good()) return -1;
+    if (bytes > 0 && !in.read(&buf[0], (std::streamsize)bytes)) return -1;
+  }
+  int lastPercent = -1;
+  auto report = [&](int pct) {
+    if (progress && pct != lastPercent) progress->fn(progress->ctx, pct);
+    lastPercent = pct;
+  };
+  report(0);
+
+  // Newline-aligned chunks, each parsed into its own sorted run (parsing is 0..90%).
+  long long chunkBytes = bytes / 32 > kImportChunkBytes ? bytes / 32 : kImportChunkBytes;
+  std::vector<StudentRecord> rows;
+  std::vector<std::vector<RowKey>> runs;
+  rows.reserve((size_t)(bytes / 32) + 1);
+  std::vector<std::string> rejects; // "line N (reason)"
+  const char* base = buf.data();
+  const char* p = base;
+  const char* end = p + buf.size();
+  int line = 1;
+  while (p < end) {
+    const char* stop = end - p > chunkBytes ? p + chunkBytes : end;
+    std::vector<RowKey> run;
+    run.reserve((size_t)((stop - p) / 32) + 1);
+    while (p < end) {
+      const char* nl = p;
+      while (nl < end && *nl != '\n') nl++;
+      StudentRecord r;
+      const char* why = parseRow(Span{p, nl}, r);
+      if (!why) {
+        run.push_back(RowKey{r.roll, line, (int)rows.size()});
+        rows.push_back(std::move(r));
+      } else if (*why) {
+        rejects.push_back("line " + std::to_string(line) + " (" + why + ")");
+      }
+      line++;
+      p = nl + 1;
+      if (p >= stop) break; // the chunk ends on the line that crosses its boundary
+    }
+    sortByRoll(run);
+    runs.push_back(std::move(run));
+    report((int)((p < end ? p - base : bytes) * 90 / (bytes > 0 ? bytes : 1)));
+  }
+
+  // k-way merge of the runs, ties by run (= file order); duplicates are then adjacent and
+  // the first is kept, as insert-only would.
+  struct Head {
+    int roll;
+    int run;
+  };
+  struct HeadLess {
+    bool operator()(const Head& a, const Head& b) const { return a.roll < b.roll || (a.roll == b.roll && a.run < b.run); }
+  };
+  dsa::MinHeap<Head, HeadLess> heads;
+  std::vector<size_t> next(runs.size(), 0);
+  for (size_t k = 0; k < runs.size(); k++) {
+    if (!runs[k].empty()) heads.push(Head{runs[k][0].roll, (int)k});
+  }
+  std::vector<StudentRecord> sorted;
+  sorted.reserve(rows.size());
+  RowKey prev{0, 0, -1};
+  while (!heads.empty()) {
+    Head h = heads.popMin();
+    std::vector<RowKey>& run = runs[(size_t)h.run];
+    const RowKey& key = run[next[(size_t)h.run]++];
+    if (next[(size_t)h.run] < run.size()) heads.push(Head{run[next[(size_t)h.run]].roll, h.run});
+
+    if (prev.row >= 0 && key.roll == prev.roll) {
+      rejects.push_back("line " + std::to_string(key.line) + " (duplicate roll " + std::to_string(key.roll) +
+                        ", first on line " + std::to_string(prev.line) + ")");
+      continue;
+    }
+    prev = key;
+    sorted.push_back(std::move(rows[(size_t)key.row]));
+  }
+
+  // Called on an empty store (fresh or after switchToFile), so the build replaces nothing.
+  int loaded = (int)sorted.size();
+  db_.buildSorted(sorted);
+  report(100);
+
+  if (!rejects.empty()) {
+    const size_t kShown = 5;
+    rejected = "Rejected " + std::to_string(rejects.size()) + " rows: ";
+    for (size_t i = 0; i < rejects.size() && i < kShown; i++) {
+      if (i > 0) rejected += ", ";
+      rejected += rejects[i];
+    }
+    if (rejects.size() > kShown) rejected += ", and " + std::to_string(rejects.size() - kShown) + " more";
+    rejected += ".";
+  }
+  return loaded;
+}
+
+long long StudentStore::fileSize(const std::string& path) {
+  std::ifstream in(path.c_str(), std::ios::in | std::ios::binary);
+  if (!in.good()) return -1;
+  in.seekg(0, std::ios::end);
+  return (long long)in.tellg();
+}
+
+namespace {
+
+const unsigned long long kFnvSeed = 1469598103934665603ULL;
+
+unsigned long long fnvAdd(unsigned long long h, const char* p, size_t n) {
+  for (size_t i = 0; i < n; i++) {
+    h ^= (unsigned long long)(unsigned char)p[i];
+    h *= 1099511628211ULL;
+  }
+  return h;
+}
+
+} // namespace
+
+StudentStore::CsvStamp StudentStore::fileStamp(const std::string& path) {
+  CsvStamp st;
+  st.hash = kFnvSeed;
+  std::ifstream in(path.c_str(), std::ios::in | std::ios::binary);
+  if (!in.good()) return st;
+  std::vector<char> block((size_t)kImportChunkBytes);
+  st.bytes = 0;
+  while (in) {
+    in.read(block.data(), (std::streamsize)block.size());
+    std::streamsize got = in.gcount();
+    st.hash = fnvAdd(st.hash, block.data(), (size_t)got);
+    st.bytes += got;
+  }
+  return st;
+}
+
+long long (*StudentStore::modifiedTime_)(const std::string& path) = nullptr;
+
+void StudentStore::setModifiedTimeSource(long long (*fn)(const std::string& path)) {
+  modifiedTime_ = fn;
+}
+
+long long StudentStore::modifiedTime(const std::string& path) {
+  return modifiedTime_ ? modifiedTime_(path) : -1;
+}
+
+namespace {
+
+void putInt(std::string& out, int v) {
+  unsigned int u = (unsigned int)v;
+  out += (char)(u & 0xFF);
+  out += (char)((u >> 8) & 0xFF);
+  out += (char)((u >> 16) & 0xFF);
+  out += (char)((u >> 24) & 0xFF);
+}
+
+void putLong(std::string& out, unsigned long long v) {
+  putInt(out, (int)(unsigned int)(v & 0xFFFFFFFFULL));
+  putInt(out, (int)(unsigned int)(v >> 32));
+}
+
+int getInt(const unsigned char* b) {
+  return (int)((unsigned int)b[0] | ((unsigned int)b[1] << 8) | ((unsigned int)b[2] << 16) | ((unsigned int)b[3] << 24));
+}
+
+unsigned long long getLong(const unsigned char* b) {
+  return (unsigned long long)(unsigned int)getInt(b) | ((unsigned long long)(unsigned int)getInt(b + 4) << 32);
+}
+
+// magic, count, arenaBytes, csvBytes, csvHash, csvModified, csvWritten (int), lastSeq.
+const int kSnapHeaderBytes = 48;
+const int kSnapModifiedAt = 28;    // csvModified + csvWritten, patched together
+const int kSnapV2HeaderBytes = 36; // "CSS2": csvBytes, csvHash, lastSeq
+const int kSnapV1HeaderBytes = 20; // "CSS1": csvBytes
+const int kSnapRecordInts = 8;
+
+} // namespace
+
+StoreResult StudentStore::writeSnapshot(const std::vector<StudentRecord>& all, const CsvStamp& csvStamp,
+                                        bool csvWritten) const {
+  std::string arena;
+  std::string buf;
+  buf.reserve((size_t)kSnapHeaderBytes + all.size() * kSnapRecordInts * 4);
+  buf.append("CSS3", 4);
+  putInt(buf, (int)all.size());
+  putInt(buf, 0); // arena size, patched below
+  putLong(buf, (unsigned long long)csvStamp.bytes);
+  putLong(buf, csvStamp.hash);
+  putLong(buf, (unsigned long long)csvStamp.modified);
+  putInt(buf, csvWritten ? 1 : 0);
+  putLong(buf, (unsigned long long)journalSeq_);
+  for (size_t i = 0; i < all.size(); i++) {
+    const StudentRecord& r = all[i];
+    putInt(buf, r.roll);
+    putInt(buf, r.semester);
+    putInt(buf, r.present);
+    putInt(buf, r.total);
+    putInt(buf, (int)arena.size());
+    putInt(buf, (int)r.name.size());
+    arena += r.name;
+    putInt(buf, (int)arena.size());
+    putInt(buf, (int)r.program.size());
+    arena += r.program;
+  }
+  std::string size;
+  putInt(size, (int)arena.size());
+  buf.replace(8, 4, size);
+
+  // Course header restrictions: avoid filesystem ops (rename/remove).
+  // Safe-ish rewrite:
+  // 1) write a .bak snapshot first (so recovery is possible)
+  // 2) then overwrite the main file in one pass
+  std::string snap = snapshotPath();
+  std::string bak = snap + ".bak";
+  const char* files[2] = {bak.c_str(), snap.c_str()};
+  for (int f = 0; f < 2; f++) {
+    std::ofstream out(files[f], std::ios::out | std::ios::binary | std::ios::trunc);
+    if (!out.good()) return StoreResult{false, f == 0 ? "Failed to write backup file." : "Failed to rewrite data file."};
+    out.write(buf.data(), (std::streamsize)buf.size());
+    out.write(arena.data(), (std::streamsize)arena.size());
+    out.close();
+    if (!out) return StoreResult{false, "Failed to rewrite data file."};
+  }
+  return StoreResult{true, "OK"};
+}
+
+// Marks the CSV rewrite as finished in both snapshot files (12 bytes in place).
+void StudentStore::patchSnapshotWritten(long long modified) const {
+  std::string patch;
+  putLong(patch, (unsigned long long)modified);
+  putInt(patch, 1);
+  std::string snap = snapshotPath();
+  std::string bak = snap + ".bak";
+  const char* files[2] = {bak.c_str(), snap.c_str()};
+  for (int f = 0; f < 2; f++) {
+    std::fstream io(files[f], std::ios::in | std::ios::out | std::ios::binary);
+    if (!io.good()) continue;
+    io.seekp(kSnapModifiedAt);
+    io.write(patch.data(), (std::streamsize)patch.size());
+  }
+}
+
+StoreResult StudentStore::writeCsv(const std::string& text) const {
+  std::ofstream out(path_.c_str(), std::ios::out | std::ios::binary | std::ios::trunc);
+  if (!out.good()) return StoreResult{false, "Failed to rewrite data file."};
+  out.write(text.data(), (std::streamsize)text.size());
+  out.close();
+  if (!out) return StoreResult{false, "Failed to rewrite data file."};
+  return StoreResult{true, "OK"};
+}
+
+bool StudentStore::readSnapshot(const std::string& snapPath, bool& replaced) {
+  replaced = false;
+  long long bytes = fileSize(snapPath);
+  if (bytes < kSnapV1HeaderBytes) return false;
+  std::vector<unsigned char> buf((size_t)bytes);
+  {
+    std::ifstream in(snapPath.c_str(), std::ios::in | std::ios::binary);
+    if (!in.read(reinterpret_cast<char*>(buf.data()), (std::streamsize)bytes)) return false;
+  }
+  const unsigned char* b = buf.data();
+  if (b[0] != 'C' || b[1] != 'S' || b[2] != 'S' || b[3] < '1' || b[3] > '3') return false;
+  int version = b[3] - '0';
+  int headerBytes = version == 1 ? kSnapV1HeaderBytes : version == 2 ? kSnapV2HeaderBytes : kSnapHeaderBytes;
+  if (bytes < headerBytes) return false;
+  int count = getInt(b + 4);
+  int arenaBytes = getInt(b + 8);
+  CsvStamp made;
+  made.bytes = (long long)getLong(b + 12);
+  bool written = true; // CSS1/CSS2 never rewrote the CSV
+  long long lastSeq = 0;
+  if (version >= 2) made.hash = getLong(b + 20);
+  if (version == 2) lastSeq = (long long)getLong(b + 28);
+  if (version == 3) {
+    made.modified = (long long)getLong(b + 28);
+    written = getInt(b + 36) != 0;
+    lastSeq = (long long)getLong(b + 40);
+  }
+  if (count < 0 || arenaBytes < 0 || lastSeq < 0) return false;
+  long long recordBytes = (long long)count * kSnapRecordInts * 4;
+  if (bytes != headerBytes + recordBytes + arenaBytes) return false; // torn or foreign
+
+  const unsigned char* rec = b + headerBytes;
+  const char* arena = reinterpret_cast<const char*>(rec + recordBytes);
+  std::vector<StudentRecord> all((size_t)count);
+  for (int i = 0; i < count; i++, rec += kSnapRecordInts * 4) {
+    StudentRecord& r = all[(size_t)i];
+    r.roll = getInt(rec);
+    r.semester = getInt(rec + 4);
+    r.present = getInt(rec + 8);
+    r.total = getInt(rec + 12);
+    int nameOff = getInt(rec + 16), nameLen = getInt(rec + 20);
+    int progOff = getInt(rec + 24), progLen = getInt(rec + 28);
+    if (nameOff < 0 || nameLen < 0 || nameLen > arenaBytes - nameOff) return false;
+    if (progOff < 0 || progLen < 0 || progLen > arenaBytes - progOff) return false;
+    if (r.roll <= 0 || (i > 0 && r.roll <= all[(size_t)i - 1].roll)) return false; // sorted, unique
+    r.name.assign(arena + nameOff, (size_t)nameLen);
+    r.program.assign(arena + progOff, (size_t)progLen);
+  }
+
+  // Which CSV is on disk? Same size and modification time: trusted without reading it.
+  long long csvBytes = fileSize(path_);
+  long long modified = modifiedTime(path_);
+  bool behind = false;
+  CsvStamp disk = made;
+  if (csvBytes < 0) {
+    disk = CsvStamp();
+    behind = true; // a missing CSV keeps the snapshot; the next compaction writes it again
+  } else if (!(written && csvBytes == made.bytes && made.modified >= 0 && modified == made.modified)) {
+    disk = fileStamp(path_);
+    disk.modified = modified;
+    bool same = disk.bytes == made.bytes && (version == 1 || disk.hash == made.hash);
+    if (!same && !written) {
+      // The compaction stopped between this snapshot and the end of the CSV rewrite: the CSV
+      // is the one before it or a torn copy, and the snapshot has everything.
+      behind = true;
+    } else if (!same) {
+      replaced = true; // edited outside the app: it wins
+      return false;
+    }
   }
-  in.close();
 
-  return StoreResult{true, "Loaded " + std::to_string(loaded) + " students."};
+  db_.buildSorted(all);
+  dayEpoch_ = 0;
+  foldedSeq_ = lastSeq;
+  csv_ = disk;
+  csvBehind_ = behind;
+  return true;
 }
 
 StoreResult StudentStore::switchToFile(const std::string& csvPath) {
+  return switchToFile(csvPath, nullptr);
+}
+
+StoreResult StudentStore::switchToFile(const std::string& csvPath, const ImportProgress* progress) {
   if (csvPath.empty()) return StoreResult{false, "Invalid path."};
   path_ = csvPath;
   db_.clear();
-  return load();
+  byPercent_.clear();
+  invalidateIndex();
+  dayEpoch_ = 0;
+  return load(progress);
 }
 
+namespace {
+
+// appendJournalLines() succeeds once the entries are appended; a failed compaction after
+// that only rides along in its message.
+std::string withJournalNote(const std::string& done, const StoreResult& wr) {
+  return wr.message == "OK" ? done : done + " " + wr.message;
+}
+
+} // namespace
+
 StoreResult StudentStore::addStudent(const StudentRecord& r) {
   if (r.roll <= 0) return StoreResult{false, "Invalid roll."};
   if (r.name.empty()) return StoreResult{false, "Name required."};
@@ -144,45 +575,167 @@ StoreResult StudentStore::addStudent(const StudentRecord& r) {
     return StoreResult{false, "Roll already exists. Use a different roll."};
   }
 
-  if (!db_.insert(r)) return StoreResult{false, "Insert failed."};
+  StudentRecord stored = r;
+  stored.total -= dayEpoch_;
+  if (!db_.insert(stored)) return StoreResult{false, "Insert failed."};
+  indexAdd(stored);
 
-  std::ofstream out(path_.c_str(), std::ios::app);
-  if (!out.good()) return StoreResult{false, "Inserted in memory, but failed to write to file."};
-  out << toLine(r);
+  std::string line = toLine(r);
+  line.pop_back(); // journal adds its own newline
+  StoreResult wr = appendJournal("A", line);
+  if (!wr.ok) return StoreResult{false, "Inserted in memory, but failed to write to file."};
+
+  return StoreResult{true, withJournalNote("Student added.", wr)};
+}
+
+StoreResult StudentStore::appendJournal(const std::string& op, const std::string& rest) {
+  std::vector<std::string> one;
+  one.push_back(op + "," + rest);
+  return appendJournalLines(one);
+}
+
+StoreResult StudentStore::appendJournalLines(const std::vector<std::string>& opRest) {
+  if (opRest.empty()) return StoreResult{true, "OK"};
+
+  // O(1) append instead of an O(n) CSV rewrite per mutation.
+  std::ofstream out(journalPath().c_str(), std::ios::out | std::ios::app);
+  if (!out.good()) return StoreResult{false, "Failed to write attendance journal."};
+  for (size_t i = 0; i < opRest.size(); i++) {
+    journalSeq_++;
+    out << journalSeq_ << ',' << opRest[i] << '\n';
+  }
   out.close();
 
-  return StoreResult{true, "Student added."};
+  journalEntries_ += (int)opRest.size();
+  // The entries are durable now, so a failed compaction does not fail the append; the
+  // journal just keeps growing and the next append retries it.
+  if (journalEntries_ >= kCompactEvery) {
+    StoreResult c = compact();
+    if (!c.ok) return StoreResult{true, "Saved, but compaction failed: " + c.message};
+  }
+  return StoreResult{true, "OK"};
 }
 
-StoreResult StudentStore::rewriteAll(const std::vector<StudentRecord>& all) const {
-  // Course header restrictions: avoid filesystem ops (rename/remove).
-  // Safe-ish rewrite:
-  // 1) write a .bak snapshot first (so recovery is possible)
-  // 2) then overwrite the main file in one pass
-  std::string bak = path_ + ".bak";
-  {
-    std::ofstream bout(bak.c_str(), std::ios::out | std::ios::trunc);
-    if (!bout.good()) return StoreResult{false, "Failed to write backup file."};
-    bout << "roll,name,program,semester,present,total\n";
-    for (size_t i = 0; i < all.size(); i++) bout << toLine(all[i]);
-    bout.close();
+StoreResult StudentStore::compact() {
+  return compact(true);
+}
+
+StoreResult StudentStore::compact(bool rewriteCsv) {
+  // Snapshot first (.snap.bak + .snap), then the CSV, only then drop the journal.
+  foldDays();
+  std::vector<StudentRecord> all = db_.inorder();
+  CsvStamp next = csv_;
+  std::string text;
+  if (rewriteCsv) {
+    text = "roll,name,program,semester,present,total\n";
+    for (size_t i = 0; i < all.size(); i++) text += toLine(all[i]);
+    next.bytes = (long long)text.size();
+    next.hash = fnvAdd(kFnvSeed, text.data(), text.size());
+    next.modified = -1;
+  }
+  StoreResult wr = writeSnapshot(all, next, !rewriteCsv);
+  if (!wr.ok) return wr;
+  if (rewriteCsv) {
+    wr = writeCsv(text);
+    if (!wr.ok) return wr;
+    next.modified = modifiedTime(path_);
+    patchSnapshotWritten(next.modified);
   }
+  csv_ = next;
+  csvBehind_ = false;
 
-  std::ofstream out(path_.c_str(), std::ios::out | std::ios::trunc);
-  if (!out.good()) return StoreResult{false, "Failed to rewrite data file."};
-  out << "roll,name,program,semester,present,total\n";
-  for (size_t i = 0; i < all.size(); i++) out << toLine(all[i]);
-  out.close();
+  std::ofstream j(journalPath().c_str(), std::ios::out | std::ios::trunc);
+  if (!j.good()) return StoreResult{false, "Failed to reset attendance journal."};
+  j.close();
+  journalEntries_ = 0;
   return StoreResult{true, "OK"};
 }
 
+int StudentStore::dropJournal() {
+  journalSeq_ = foldedSeq_;
+  journalEntries_ = 0;
+
+  std::ifstream in(journalPath().c_str());
+  if (!in.good()) return 0;
+
+  // Keep counting past the dropped entries: the next compaction stamps the snapshot's
+  // lastSeq with them, so a crash before the truncate still skips them.
+  std::string line;
+  while (std::getline(in, line)) {
+    if (in.eof()) break; // torn append
+    size_t c1 = line.find(',');
+    if (c1 == std::string::npos) continue;
+    int seq = toInt(line.substr(0, c1), -1);
+    if (seq <= 0) continue;
+    if (seq > journalSeq_) journalSeq_ = seq;
+    journalEntries_++;
+  }
+  in.close();
+  return journalEntries_;
+}
+
+int StudentStore::replayJournal() {
+  journalSeq_ = foldedSeq_;
+  journalEntries_ = 0;
+
+  std::ifstream in(journalPath().c_str());
+  if (!in.good()) return 0;
+
+  int applied = 0;
+  std::string line;
+  while (std::getline(in, line)) {
+    // A last line without '\n' is a torn append (crash mid-write): ignore it.
+    if (in.eof()) break;
+
+    size_t c1 = line.find(',');
+    if (c1 == std::string::npos) continue;
+    size_t c2 = line.find(',', c1 + 1);
+    if (c2 == std::string::npos) continue;
+
+    int seq = toInt(line.substr(0, c1), -1);
+    std::string op = trim(line.substr(c1 + 1, c2 - c1 - 1));
+    std::string rest = line.substr(c2 + 1);
+    if (seq <= 0) continue;
+    if (seq <= foldedSeq_) { // already in the snapshot: compaction stopped before the truncate
+      journalEntries_++;     // still in the file, so load() compacts it away
+      continue;
+    }
+
+    bool ok = false;
+    if (op == "A") {
+      StudentRecord r;
+      if (parseLine(rest, r)) {
+        r.total -= dayEpoch_;
+        ok = db_.insert(r);
+        if (ok) indexAdd(r);
+      }
+    } else if (op == "P" || op == "D") {
+      size_t c3 = rest.find(',');
+      if (c3 == std::string::npos) continue;
+      int roll = toInt(rest.substr(0, c3), -1);
+      int delta = toInt(rest.substr(c3 + 1), 0);
+      for (int k = 0; k < delta; k++) ok = (op == "P") ? applyPresent(roll) : applyNewDay();
+    }
+
+    if (seq > journalSeq_) journalSeq_ = seq;
+    if (ok) {
+      applied++;
+      journalEntries_++;
+    }
+  }
+  in.close();
+  return applied;
+}
+
 StoreResult StudentStore::deleteStudent(int roll) {
   if (roll <= 0) return StoreResult{false, "Invalid roll."};
-  bool removed = db_.remove(roll);
-  if (!removed) return StoreResult{false, "Student not found."};
+  StudentRecord old;
+  if (!db_.find(roll, old)) return StoreResult{false, "Student not found."};
+  if (!db_.remove(roll)) return StoreResult{false, "Student not found."};
+  indexRemove(old);
 
-  std::vector<StudentRecord> all = db_.inorder();
-  StoreResult wr = rewriteAll(all);
+  // Deletes are rare: fold everything into a fresh snapshot.
+  StoreResult wr = compact();
   if (!wr.ok) return wr;
   return StoreResult{true, "Student deleted."};
 }
@@ -190,31 +743,62 @@ StoreResult StudentStore::deleteStudent(int roll) {
 StoreResult StudentStore::getStudent(int roll, StudentRecord& out) const {
   if (roll <= 0) return StoreResult{false, "Invalid roll."};
   if (!db_.find(roll, out)) return StoreResult{false, "Not found."};
+  out.total += dayEpoch_;
   return StoreResult{true, "OK"};
 }
 
 StoreResult StudentStore::getStudentTrace(int roll, StudentRecord& out, std::vector<int>& visited) const {
   if (roll <= 0) return StoreResult{false, "Invalid roll."};
   if (!db_.findTrace(roll, out, visited)) return StoreResult{false, "Not found."};
+  out.total += dayEpoch_;
   return StoreResult{true, "OK"};
 }
 
-StoreResult StudentStore::newDayForAll() {
+bool StudentStore::applyNewDay() {
+  if (db_.size() == 0) return false;
+  // total++ for everyone without touching the tree (present <= total still holds).
+  dayEpoch_++;
+  invalidateIndex(); // every percent moved
+  return true;
+}
+
+void StudentStore::foldDays() {
+  if (dayEpoch_ == 0) return;
+  int add = dayEpoch_;
+  db_.forEachMutable([add](StudentRecord& r) { r.total += add; });
+  dayEpoch_ = 0;
+}
+
+std::vector<StudentRecord> StudentStore::snapshot() const {
   std::vector<StudentRecord> all = db_.inorder();
-  if (all.empty()) return StoreResult{false, "No students registered."};
+  for (size_t i = 0; i < all.size(); i++) all[i].total += dayEpoch_;
+  return all;
+}
 
-  for (size_t i = 0; i < all.size(); i++) {
-    all[i].total += 1;
-    if (all[i].present > all[i].total) all[i].present = all[i].total;
-  }
+bool StudentStore::applyPresent(int roll) {
+  StudentRecord r;
+  if (!db_.find(roll, r)) return false;
+  StudentRecord old = r;
+  r.total += dayEpoch_;
 
-  // rebuild AVL (practical choice: keep AVL as index; rewrite with updated values)
-  db_.clear();
-  for (size_t i = 0; i < all.size(); i++) db_.insert(all[i]);
+  // Must have a day to mark
+  if (r.total <= 0) r.total = 1;
+  if (r.present < r.total) r.present += 1;
+
+  r.total -= dayEpoch_;
+  if (!db_.update(r)) return false;
+  indexRemove(old);
+  indexAdd(r);
+  return true;
+}
+
+StoreResult StudentStore::newDayForAll() {
+  if (!applyNewDay()) return StoreResult{false, "No students registered."};
+  percentIndex(); // rebuilt by the writer, see byPercent_
 
-  StoreResult wr = rewriteAll(all);
+  StoreResult wr = appendJournal("D", "0,1");
   if (!wr.ok) return wr;
-  return StoreResult{true, "New day recorded."};
+  return StoreResult{true, withJournalNote("New day recorded.", wr)};
 }
 
 StoreResult StudentStore::markPresent(int roll) {
@@ -222,21 +806,41 @@ StoreResult StudentStore::markPresent(int roll) {
   StoreResult g = getStudent(roll, r);
   if (!g.ok) return g;
 
-  // Must have a day to mark
-  if (r.total <= 0) r.total = 1;
-  if (r.present < r.total) r.present += 1;
-
-  if (!db_.update(r)) return StoreResult{false, "Update failed."};
+  if (!applyPresent(roll)) return StoreResult{false, "Update failed."};
 
-  std::vector<StudentRecord> all = db_.inorder();
-  StoreResult wr = rewriteAll(all);
+  StoreResult wr = appendJournal("P", std::to_string(roll) + ",1");
   if (!wr.ok) return wr;
 
-  return StoreResult{true, "Marked present."};
+  return StoreResult{true, withJournalNote("Marked present.", wr)};
+}
+
+StoreResult StudentStore::markPresentBatch(const std::vector<int>& rolls, std::vector<int>& status) {
+  status.assign(rolls.size(), 0);
+  std::vector<std::string> entries;
+  entries.reserve(rolls.size());
+
+  int marked = 0;
+  for (size_t i = 0; i < rolls.size(); i++) {
+    StudentRecord r;
+    if (!getStudent(rolls[i], r).ok) continue;
+    if (r.total > 0 && r.present >= r.total) {
+      status[i] = 2;
+      continue;
+    }
+    if (!applyPresent(rolls[i])) continue;
+    status[i] = 1;
+    marked++;
+    entries.push_back("P," + std::to_string(rolls[i]) + ",1");
+  }
+
+  // Persist once for the whole batch.
+  StoreResult wr = appendJournalLines(entries);
+  if (!wr.ok) return wr;
+  return StoreResult{true, withJournalNote("Marked " + std::to_string(marked) + " of " + std::to_string(rolls.size()) + " present.", wr)};
 }
 
 std::vector<StudentRecord> StudentStore::listByRoll() const {
-  return db_.inorder();
+  return snapshot();
 }
 
 void StudentStore::mergeSortByName(std::vector<StudentRecord>& a) {
@@ -266,39 +870,153 @@ void StudentStore::mergeSortByName(std::vector<StudentRecord>& a) {
 }
 
 std::vector<StudentRecord> StudentStore::listByName() const {
-  std::vector<StudentRecord> out = db_.inorder();
+  std::vector<StudentRecord> out = snapshot();
   mergeSortByName(out);
   return out;
 }
 
 std::vector<StudentRecord> StudentStore::defaultersBelow(int minPercent) const {
-  struct Item { int percent; StudentRecord rec; };
-  struct Less { bool operator()(const Item& a, const Item& b) const { return a.percent < b.percent; } };
+  return defaultersBelow(minPercent, 0);
+}
 
-  std::vector<StudentRecord> all = db_.inorder();
-  dsa::MinHeap<Item, Less> heap;
-  for (size_t i = 0; i < all.size(); i++) {
-    int p = percent(all[i].present, all[i].total);
-    heap.push(Item{p, all[i]});
+std::vector<StudentRecord> StudentStore::defaultersBelow(int minPercent, int limit) const {
+  // Key = (percent, roll): lowest attendance first, ties by roll.
+  struct Key { int percent; int roll; };
+  struct Less {
+    bool operator()(const Key& a, const Key& b) const {
+      return a.percent < b.percent || (a.percent == b.percent && a.roll < b.roll);
+    }
+  };
+  struct Greater {
+    bool operator()(const Key& a, const Key& b) const { return Less()(b, a); }
+  };
+
+  std::vector<Key> picked; // lowest first
+  int epoch = dayEpoch_;
+  if (limit > 0) {
+    // Bounded max-heap of the k lowest seen so far: O(n log k), top = the best of them.
+    dsa::MinHeap<Key, Greater> worst;
+    db_.forEach([&](const StudentRecord& r) {
+      Key k{percent(r.present, r.total + epoch), r.roll};
+      if (k.percent >= minPercent) return;
+      if ((int)worst.size() < limit) {
+        worst.push(k);
+      } else if (Less()(k, worst.top())) {
+        worst.popMin();
+        worst.push(k);
+      }
+    });
+    picked.resize(worst.size());
+    for (size_t i = picked.size(); i > 0; i--) picked[i - 1] = worst.popMin();
+  } else {
+    std::vector<Key> below;
+    db_.forEach([&](const StudentRecord& r) {
+      int p = percent(r.present, r.total + epoch);
+      if (p < minPercent) below.push_back(Key{p, r.roll});
+    });
+    dsa::IndexedHeap<Key, Less> heap((int)below.size()); // ids index into `below`
+    for (size_t i = 0; i < below.size(); i++) heap.push((int)i, below[i]);
+    picked.reserve(below.size());
+    while (!heap.empty()) picked.push_back(below[(size_t)heap.popMin()]);
   }
 
   std::vector<StudentRecord> out;
-  while (!heap.empty()) {
-    Item it = heap.popMin();
-    if (it.percent >= minPercent) break;
-    out.push_back(it.rec);
+  out.reserve(picked.size());
+  for (size_t i = 0; i < picked.size(); i++) {
+    StudentRecord r;
+    if (!db_.find(picked[i].roll, r)) continue;
+    r.total += epoch;
+    out.push_back(r);
   }
   return out;
 }
 
-StoreResult StudentStore::exportTo(const std::string& outCsvPath) const {
+StoreResult StudentStore::exportTo(const std::string& outCsvPath) {
+  // Our own CSV is written by compaction, which keeps the snapshot's stamp in step with it.
+  if (outCsvPath == path_) {
+    StoreResult c = compact();
+    if (!c.ok) return c;
+    return StoreResult{true, "Exported."};
+  }
+
   std::ofstream out(outCsvPath.c_str(), std::ios::out);
   if (!out.good()) return StoreResult{false, "Failed to open export path."};
 
-  std::vector<StudentRecord> all = db_.inorder();
+  std::vector<StudentRecord> all = snapshot();
   out << "roll,name,program,semester,present,total\n";
   for (size_t i = 0; i < all.size(); i++) out << toLine(all[i]);
   out.close();
 
   return StoreResult{true, "Exported."};
 }
+
+void StudentStore::indexAdd(const StudentRecord& stored) {
+  if (indexFresh()) byPercent_.insert(percentOf(stored), stored.roll);
+}
+
+void StudentStore::indexRemove(const StudentRecord& stored) {
+  if (indexFresh()) byPercent_.erase(percentOf(stored), stored.roll);
+}
+
+const AttendanceIndex& StudentStore::percentIndex() const {
+  if (indexFresh()) return byPercent_;
+  byPercentLock_.lock();
+  if (!indexFresh()) {
+    // Counting sort on the clamped percent over the roll-ordered AVL walk: stable, so
+    // the result is already in (percent, roll) order. O(n), then an O(n) balanced build.
+    std::vector<int> start(102, 0);
+    std::vector<AttendanceIndex::Key> byRoll;
+    byRoll.reserve((size_t)db_.size());
+    db_.forEach([&](const StudentRecord& r) {
+      int p = AttendanceIndex::clampPercent(percentOf(r));
+      byRoll.push_back(AttendanceIndex::Key{p, r.roll});
+      start[(size_t)p + 1]++;
+    });
+    for (size_t b = 1; b < start.size(); b++) start[b] += start[b - 1];
+    std::vector<AttendanceIndex::Key> sorted(byRoll.size());
+    for (size_t i = 0; i < byRoll.size(); i++) sorted[(size_t)start[(size_t)byRoll[i].percent]++] = byRoll[i];
+    byPercent_.buildSorted(sorted);
+    __atomic_store_n(&byPercentStale_, 0, __ATOMIC_RELEASE);
+  }
+  byPercentLock_.unlock();
+  return byPercent_;
+}
+
+dsa::PoolStats StudentStore::indexPoolStats() const {
+  byPercentLock_.lock(); // a reader may be rebuilding the index
+  dsa::PoolStats s = byPercent_.poolStats();
+  byPercentLock_.unlock();
+  return s;
+}
+
+int StudentStore::countBelow(int minPercent) const {
+  return percentIndex().countBelow(minPercent);
+}
+
+std::vector<StudentRecord> StudentStore::lowest(int k) const {
+  std::vector<AttendanceIndex::Key> keys;
+  percentIndex().lowest(k, keys);
+  std::vector<StudentRecord> out;
+  out.reserve(keys.size());
+  for (size_t i = 0; i < keys.size(); i++) {
+    StudentRecord r;
+    if (!db_.find(keys[i].roll, r)) continue;
+    r.total += dayEpoch_;
+    out.push_back(r);
+  }
+  return out;
+}
+
+bool StudentStore::percentileRank(int roll, AttendanceRank& out) const {
+  StudentRecord r;
+  if (roll <= 0 || !db_.find(roll, r)) return false;
+  const AttendanceIndex& idx = percentIndex();
+  out.roll = roll;
+  out.percent = percentOf(r);
+  int p = AttendanceIndex::clampPercent(out.percent);
+  out.rank = idx.rankOf(p, roll) + 1;
+  out.below = idx.countBelow(p);
+  out.count = idx.size();
+  out.percentile = out.count > 0 ? (out.below * 100) / out.count : 0;
+  return true;
+}
@@ -4,45 +4,114 @@
 #include <string>
 #include <vector>
 
+#include "attendance_index.h"
 #include "avl_tree.h"
+#include "dsa_level1.h"
 #include "dsa_min_heap.h"
 
 // Practical persistence layer:
-// - CSV file is the permanent store
+// - binary snapshot (<csv>.snap) + journal are what load() reads; every compaction also
+//   rewrites the CSV, so the CSV is current up to the last compaction and an outside edit
+//   to it starts from the app's data, not from an old import
 // - AVL tree provides O(log n) search/insert/delete by roll
 //
 // CSV format:
 // roll,name,program,semester,present,total
 // (no commas inside fields)
+//
+// Snapshot (<csv>.snap, all ints 32-bit little-endian):
+//   "CSS3", count, arenaBytes, csvBytes, csvHash, csvModified, csvWritten, lastSeq
+//   (the 64-bit values as two ints, low half first),
+//   count x {roll, semester, present, total, nameOff, nameLen, programOff, programLen}
+//   sorted by roll, then the string arena (UTF-8, offsets relative to its start).
+// One bulk read loads it and the AVL tree is built from the sorted records in O(n).
+// csvBytes/csvHash/csvModified stamp the CSV written with it (size, FNV-1a hash,
+// modification time in ms or -1); csvWritten is patched to 1 once that CSV is on disk.
+// load() trusts a CSV with the same size and time without reading it and hashes it
+// otherwise. A CSV that does not match a written stamp was edited outside the app: it is
+// imported instead and the journal is dropped, since its entries belong to the replaced
+// data. If csvWritten is still 0 the rewrite was cut short, so the snapshot wins and the
+// CSV is written again. lastSeq is the last journal entry folded into the snapshot. "CSS2"
+// (csvBytes, csvHash, lastSeq) and "CSS1" (csvBytes only, checked by size, lastSeq 0)
+// snapshots still load.
+//
+// Attendance journal (<csv>.journal, append-only):
+// - every mutation after the last snapshot is appended as one line
+//     seq,P,roll,delta          (mark present)
+//     seq,D,0,delta             (new day for all)
+//     seq,A,roll,name,program,semester,present,total   (new student)
+// - load() replays it on top of the snapshot, skipping seq <= the snapshot's lastSeq:
+//   a crash between writing the snapshot and truncating the journal (or a fallback to
+//   .snap.bak) must not apply the same P/D entry twice
+// - compaction writes the snapshot, then the CSV, then truncates the journal; seq keeps
+//   counting up
 
 struct StoreResult {
   bool ok = false;
   std::string message;
 };
 
+// CSV import progress: fn(ctx, percent) with percent rising from 0 to 100, called on the
+// importing thread between chunks.
+struct ImportProgress {
+  void (*fn)(void* ctx, int percent);
+  void* ctx;
+};
+
+// Where one student stands in the attendance order (see StudentStore::percentileRank).
+struct AttendanceRank {
+  int roll = 0;
+  int percent = 0;
+  int rank = 0;       // 1-based position, lowest attendance first (ties by roll)
+  int below = 0;      // students with a strictly lower percent
+  int count = 0;      // students in the store
+  int percentile = 0; // below * 100 / count
+};
+
 class StudentStore {
  public:
   explicit StudentStore(const std::string& csvPath);
+  // File modification time in ms (-1 if unknown), for the cheap CSV check in load(). The
+  // headers have no portable stat, so the JNI layer supplies one; set once, before any load.
+  // Without it every load hashes the CSV.
+  static void setModifiedTimeSource(long long (*fn)(const std::string& path));
 
   StoreResult load();
+  StoreResult load(const ImportProgress* progress);    // progress: nullptr = none
   StoreResult switchToFile(const std::string& csvPath); // replace dataset + persistence path
+  StoreResult switchToFile(const std::string& csvPath, const ImportProgress* progress);
   StoreResult addStudent(const StudentRecord& r);       // insert only, no overwrite
   StoreResult deleteStudent(int roll);                 // remove + safe rewrite
   StoreResult getStudent(int roll, StudentRecord& out) const;
   StoreResult getStudentTrace(int roll, StudentRecord& out, std::vector<int>& visited) const;
 
-  StoreResult newDayForAll();                          // total++ for all
+  StoreResult newDayForAll();                          // total++ for all (see dayEpoch_), O(n) index rebuild
   StoreResult markPresent(int roll);                   // present++ for roll
+  // present++ for many rolls with a single journal write.
+  // status[i]: 1 = marked, 2 = already present for every day, 0 = unknown roll
+  StoreResult markPresentBatch(const std::vector<int>& rolls, std::vector<int>& status);
 
   std::vector<StudentRecord> listByRoll() const;       // AVL inorder
   std::vector<StudentRecord> listByName() const;       // merge sort on name
 
   std::vector<StudentRecord> defaultersBelow(int minPercent) const; // min-heap
+  // The `limit` lowest below minPercent, lowest first (ties by roll); limit <= 0 = all.
+  // Heaps only (percent, roll) ints; records are fetched for the rows returned.
+  std::vector<StudentRecord> defaultersBelow(int minPercent, int limit) const;
+
+  // Order-statistic queries on the (percent, roll) index: O(log n) (+ k rows).
+  int countBelow(int minPercent) const;
+  std::vector<StudentRecord> lowest(int k) const; // the k lowest, lowest first (ties by roll)
+  bool percentileRank(int roll, AttendanceRank& out) const;
 
   int count() const { return db_.size(); }
 
-  // Export current state to another CSV path.
-  StoreResult exportTo(const std::string& outCsvPath) const;
+  // Node pool counters of the roll tree and of the attendance index.
+  dsa::PoolStats recordPoolStats() const { return db_.poolStats(); }
+  dsa::PoolStats indexPoolStats() const;
+
+  // Export current state to a CSV path (exporting over the store's own CSV re-snapshots).
+  StoreResult exportTo(const std::string& outCsvPath);
 
  private:
   std::string path_;
@@ -53,7 +122,73 @@ class StudentStore {
   static std::string toLine(const StudentRecord& r);
 
   StoreResult ensureFileExists();
-  StoreResult rewriteAll(const std::vector<StudentRecord>& all) const;
+  // Whole-file read, parsed in newline-aligned chunks that are each sorted by roll, then a
+  // k-way merge and an O(n) tree build. Returns the records loaded (-1 if unreadable);
+  // skipped rows are summarised with line numbers in `rejected`.
+  static const long long kImportChunkBytes = 1 << 20; // at least; files > 32 MiB use 32 chunks
+  int importCsv(std::string& rejected, const ImportProgress* progress);
+
+  std::string snapshotPath() const { return path_ + ".snap"; }
+  static long long fileSize(const std::string& path);  // -1 if missing
+  struct CsvStamp {
+    long long bytes = -1;           // -1 = no file
+    unsigned long long hash = 0;    // FNV-1a of the contents
+    long long modified = -1;        // ms, -1 = unknown
+  };
+  // Size and hash of a file, read in large blocks (modified is left -1).
+  static CsvStamp fileStamp(const std::string& path);
+  static long long (*modifiedTime_)(const std::string& path);
+  static long long modifiedTime(const std::string& path); // -1 without a source
+  CsvStamp csv_;          // the CSV on disk, as of the last load or compaction
+  bool csvBehind_ = false; // the CSV on disk is not the snapshot's (missing, or a cut-short rewrite)
+  // csvStamp: the CSV that goes with the snapshot; csvWritten: it is already on disk.
+  StoreResult writeSnapshot(const std::vector<StudentRecord>& all, const CsvStamp& csvStamp,
+                            bool csvWritten) const;
+  void patchSnapshotWritten(long long modified) const;
+  // False if unusable; `replaced` is set when it is intact but the CSV was edited outside.
+  bool readSnapshot(const std::string& snapPath, bool& replaced);
+  StoreResult writeCsv(const std::string& text) const;
+
+  // Journal (write-ahead log of attendance/insert operations)
+  static const int kCompactEvery = 500; // journal entries before folding into the CSV
+  long long journalSeq_ = 0;
+  long long foldedSeq_ = 0; // lastSeq of the snapshot load() started from
+  int journalEntries_ = 0;
+
+  std::string journalPath() const { return path_ + ".journal"; }
+  StoreResult appendJournal(const std::string& op, const std::string& rest);
+  StoreResult appendJournalLines(const std::vector<std::string>& opRest); // "op,rest" entries
+  StoreResult compact();                 // binary snapshot + CSV + empty journal
+  // rewriteCsv false: the CSV on disk already holds exactly these rows (just imported).
+  StoreResult compact(bool rewriteCsv);
+  int replayJournal();                   // returns applied entries
+  int dropJournal();                     // skips every entry (replaced data), returns them
+
+  // Lazy global day counter: the tree stores total - dayEpoch_, so a new day is
+  // one increment. foldDays() pushes the offset into every node in place.
+  int dayEpoch_ = 0;
+  void foldDays();
+  std::vector<StudentRecord> snapshot() const; // inorder with effective totals
+
+  // In-memory mutations shared by live calls and journal replay.
+  bool applyPresent(int roll);
+  bool applyNewDay();
+
+  // Secondary index by (percent, roll), kept in step by add/delete/markPresent. A new day
+  // shifts every percent at once, so it only marks the index stale (a journal replay of
+  // many days rebuilds once). newDayForAll() and load() then rebuild it in O(n) before
+  // returning: they run under the native write gate, so readers sharing the read gate
+  // never find it stale and never wait on the spin lock through a rebuild. The lock
+  // guards the lazy rebuild in percentIndex() for any other caller.
+  mutable AttendanceIndex byPercent_;
+  mutable int byPercentStale_ = 1;
+  mutable SpinLock byPercentLock_;
+  int percentOf(const StudentRecord& stored) const { return percent(stored.present, stored.total + dayEpoch_); }
+  void indexAdd(const StudentRecord& stored);
+  void indexRemove(const StudentRecord& stored);
+  void invalidateIndex() { __atomic_store_n(&byPercentStale_, 1, __ATOMIC_RELEASE); }
+  bool indexFresh() const { return __atomic_load_n(&byPercentStale_, __ATOMIC_ACQUIRE) == 0; }
+  const AttendanceIndex& percentIndex() const;
 
   static void mergeSortByName(std::vector<StudentRecord>& a);
 };
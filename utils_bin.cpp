@@ -0,0 +1,30 @@
+#include "utils_bin.h"
+
+namespace binutil {
+
+static inline void putInt(std::vector<unsigned char>& out, int v) {
+  unsigned int u = (unsigned int)v;
+  out.push_back((unsigned char)(u & 0xFF));
+  out.push_back((unsigned char)((u >> 8) & 0xFF));
+  out.push_back((unsigned char)((u >> 16) & 0xFF));
+  out.push_back((unsigned char)((u >> 24) & 0xFF));
+}
+
+void Writer::i32(int v) { putInt(fixed_, v); }
+
+void Writer::str(const std::string& s) {
+  putInt(fixed_, (int)strings_.size());
+  putInt(fixed_, (int)s.size());
+  for (size_t i = 0; i < s.size(); i++) strings_.push_back((unsigned char)s[i]);
+}
+
+std::vector<unsigned char> Writer::finish() const {
+  std::vector<unsigned char> out;
+  out.reserve(4 + fixed_.size() + strings_.size());
+  putInt(out, (int)fixed_.size());
+  for (size_t i = 0; i < fixed_.size(); i++) out.push_back(fixed_[i]);
+  for (size_t i = 0; i < strings_.size(); i++) out.push_back(strings_[i]);
+  return out;
+}
+
+} // namespace binutil
@@ -0,0 +1,29 @@
+#pragma once
+
+#include <string>
+#include <vector>
+
+// Compact binary result encoding (the fast alternative to utils_json for bulk results).
+//
+// Layout (all ints are 32-bit little-endian):
+//   int  fixedBytes              size of the fixed area that follows
+//   ...  fixed area              ints; strings are stored as (offset, length) pairs
+//   ...  string table            raw UTF-8 bytes, offsets relative to its start
+//
+// Java side: BinMini.java decodes the same layout.
+
+namespace binutil {
+
+class Writer {
+ public:
+  void i32(int v);
+  void str(const std::string& s); // writes (offset, length) into the fixed area
+
+  std::vector<unsigned char> finish() const;
+
+ private:
+  std::vector<unsigned char> fixed_;
+  std::vector<unsigned char> strings_;
+};
+
+} // namespace binutil